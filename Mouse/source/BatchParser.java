@@ -0,0 +1,603 @@
+//=========================================================================
+//
+//  Part of PEG parser generator Mouse.
+//
+//  Copyright (C) 2026 by the Mouse contributors.
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+//-------------------------------------------------------------------------
+//
+//  Change log
+//  Version 1.7
+//   261017 Created.
+//   261017 Added option '-a'.
+//
+//=========================================================================
+
+package mouse;
+
+import mouse.runtime.ParserBase;
+import mouse.runtime.ParserMemo;
+import mouse.runtime.ParserPool;
+import mouse.runtime.ParserTest.Cache;
+import mouse.runtime.Source;
+import mouse.runtime.SourceBytes;
+import mouse.runtime.SourceFile;
+import mouse.utility.CommandArgs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+//
+//  BatchParser
+//
+//-------------------------------------------------------------------------
+//
+//  Run the generated parser on many files using all processors,
+//  and print totals and throughput.
+//
+//  The list of files is divided in halves until single files remain,
+//  and the parts are run as tasks in a ForkJoinPool, where a thread
+//  that has finished its tasks takes tasks waiting for other threads.
+//  Each task takes a parser from a ParserPool and gives it back
+//  after the parse, so each thread uses one parser object at a time
+//  and objects are not constructed for each file.
+//
+//  For a test version of the parser (generated with option -T),
+//  the statistics of all parses are added up: the same numbers
+//  that TestParser shows for one file.
+//
+//  The class can also be used from a program:
+//
+//    BatchParser batch = new BatchParser(MyParser.class);
+//    batch.setThreads(8);
+//    BatchParser.Totals t = batch.parse(fileNames);
+//
+//  Invocation
+//
+//    java mouse.BatchParser <arguments>
+//
+//  The <arguments> are specified as options according to POSIX syntax:
+//
+//    -P <parser>
+//       Identifies the parser. Mandatory.
+//       <parser> is the class name, fully qualified with package name,
+//       if applicable. The class must reside in a directory corresponding
+//       to the package.
+//
+//    -F <list>
+//       Apply the parser separately to each file in a list of files.
+//       Mandatory.
+//       The <list> identifies a text file containing one fully qualified
+//       file name per line.
+//       The <list> itself need not be a complete path, just enough
+//       to identify the file in the current environment.
+//
+//    -j <n>
+//       Number of threads. Optional.
+//       Default is the number of available processors.
+//
+//    -m <n>
+//       Amount of memoization. Optional.
+//       Applicable only to a parser generated with option -M or -T.
+//       <n> is a digit from 1 through 9 specifying the number of results
+//       to be cached, or letter 'p' to cache all results (packrat parsing).
+//       Default is no memoization.
+//
+//    -c <charset>
+//       Character encoding of the files. Optional.
+//       Default is the default encoding of the platform.
+//       Files in US-ASCII or ISO-8859-1 are read without decoding.
+//
+//    -e Keep error information only for the farthest failure
+//       (error mode FARTHEST_ERROR). Has no effect with -m.
+//
+//    -a Use Phrase objects again when they are not needed any more
+//       (arena mode). Has no effect with -m.
+//
+//  The names of files that failed are listed after the error messages
+//  from the parser. Messages from different threads may be interleaved.
+//
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+public class BatchParser
+{
+  //=====================================================================
+  //
+  //  Data
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Parser class and its methods.
+  //-------------------------------------------------------------------
+  private final Class<?> parserClass;
+  private final Method parse;     // Run parser
+  private final Method setmemo;   // Set amount of memo, or null
+  private final Method seterrors; // Set error mode, or null
+  private final Method setarena;  // Set arena mode, or null
+  private final Method caches;    // Get list of Cache objects, or null
+
+  //-------------------------------------------------------------------
+  //  Parsers not in use.
+  //-------------------------------------------------------------------
+  private final ParserPool<Object> pool;
+
+  //-------------------------------------------------------------------
+  //  Settings.
+  //-------------------------------------------------------------------
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int memo = 0;
+  private int errors = ParserBase.PHRASE_ERRORS;
+  private boolean arena = false;
+  private Charset charset = null;
+
+  //-------------------------------------------------------------------
+  //  Locale for number representation.
+  //-------------------------------------------------------------------
+  static Locale loc = new Locale("US");
+
+
+  //=====================================================================
+  //
+  //  Constructor.
+  //
+  //=====================================================================
+  @SuppressWarnings("unchecked")
+  public BatchParser(final Class<?> parserClass)
+    throws NoSuchMethodException
+    {
+      this.parserClass = parserClass;
+      pool = new ParserPool<Object>((Class<Object>)parserClass);
+      parse = parserClass.getMethod("parse",Source.class);
+      setmemo = find("setMemo",int.class);
+      seterrors = find("setErrors",int.class);
+      setarena = find("setArena",boolean.class);
+      caches = find("caches");
+    }
+
+  //-------------------------------------------------------------------
+  //  Find method that may be absent.
+  //-------------------------------------------------------------------
+  private Method find(final String name, Class<?>... args)
+    {
+      try {return parserClass.getMethod(name,args);}
+      catch (NoSuchMethodException e) {return null;}
+    }
+
+
+  //=====================================================================
+  //
+  //  Settings.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Set number of threads.
+  //-------------------------------------------------------------------
+  public void setThreads(int n)
+    { threads = n; }
+
+  //-------------------------------------------------------------------
+  //  Set amount of memo, as 'setMemo' of the parser.
+  //-------------------------------------------------------------------
+  public void setMemo(int m)
+    {
+      if (m!=0 && setmemo==null)
+        throw new IllegalArgumentException
+          (parserClass.getName() + " is not a memoizing parser.");
+      memo = m;
+    }
+
+  //-------------------------------------------------------------------
+  //  Set error mode, as 'setErrors' of the parser.
+  //  A recognizer does not have it: it keeps only farthest failure.
+  //-------------------------------------------------------------------
+  public void setErrors(int mode)
+    { errors = mode; }
+
+  //-------------------------------------------------------------------
+  //  Set arena mode, as 'setArena' of the parser.
+  //-------------------------------------------------------------------
+  public void setArena(boolean on)
+    { arena = on; }
+
+  //-------------------------------------------------------------------
+  //  Set character encoding of files, or null for default.
+  //-------------------------------------------------------------------
+  public void setCharset(final Charset cs)
+    { charset = cs; }
+
+  //-------------------------------------------------------------------
+  //  Is this a test version of the parser?
+  //-------------------------------------------------------------------
+  public boolean isTest()
+    { return caches!=null; }
+
+
+  //=====================================================================
+  //
+  //  Parse all files in 'names' and return the totals.
+  //
+  //=====================================================================
+  public Totals parse(final List<String> names)
+    {
+      if (names.isEmpty()) return new Totals();
+      ForkJoinPool fjp = new ForkJoinPool(threads);
+      try
+      {
+        long t0 = System.nanoTime();
+        Totals t = fjp.invoke(new Batch(names,0,names.size()));
+        t.wall = System.nanoTime() - t0;
+        return t;
+      }
+      finally
+      { fjp.shutdown(); }
+    }
+
+
+  //=====================================================================
+  //
+  //  Task to parse files 'lo' through 'hi'-1 of 'names'.
+  //
+  //=====================================================================
+  @SuppressWarnings("serial")
+  class Batch extends RecursiveTask<Totals>
+  {
+    final List<String> names;
+    final int lo;
+    final int hi;
+
+    Batch(final List<String> names, int lo, int hi)
+      {
+        this.names = names;
+        this.lo = lo;
+        this.hi = hi;
+      }
+
+    protected Totals compute()
+      {
+        if (hi-lo==1) return parseFile(names.get(lo));
+        int mid = (lo+hi)>>>1;
+        Batch left = new Batch(names,lo,mid);
+        left.fork();
+        Totals t = new Batch(names,mid,hi).compute();
+        t.add(left.join());
+        return t;
+      }
+  }
+
+
+  //=====================================================================
+  //
+  //  Parse file 'name' and return its totals.
+  //
+  //=====================================================================
+  Totals parseFile(final String name)
+    {
+      Totals t = new Totals();
+      t.files = 1;
+      t.failed = 1;
+
+      Source src;
+      if (charset==null)
+        src = new SourceFile(name);
+      else if (SourceBytes.isSingleByte(charset))
+        src = new SourceBytes(name,charset);
+      else
+        src = new SourceFile(name,charset);
+      if (!src.created())
+      {
+        System.out.println(name + " --- failed.");
+        return t;
+      }
+      t.bytes = new File(name).length();
+
+      Object parser = pool.get();
+      try
+      {
+        if (setmemo!=null) setmemo.invoke(parser,memo);
+        if (seterrors!=null) seterrors.invoke(parser,errors);
+        if (setarena!=null) setarena.invoke(parser,arena);
+
+        long t0 = System.nanoTime();
+        boolean parsed = (Boolean)(parse.invoke(parser,src));
+        t.time = System.nanoTime() - t0;
+
+        if (caches!=null)
+          t.add((Cache[])caches.invoke(parser));
+
+        if (parsed) t.failed = 0;
+        else System.out.println(name + " --- failed.");
+      }
+      catch (InvocationTargetException e)
+      { System.out.println(name + " --- failed: " + e.getCause()); }
+      catch (IllegalAccessException e)
+      { throw new Error(e.toString()); }
+      finally
+      { pool.put(parser); }
+
+      return t;
+    }
+
+
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+  //
+  //  Totals
+  //
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+  //-------------------------------------------------------------------
+  //  Totals for a number of files. The statistics of a test version
+  //  include all parses, also those that failed.
+  //-------------------------------------------------------------------
+  public static class Totals
+  {
+    public int  files  ; // Number of files
+    public int  failed ; // How many failed
+    public long bytes  ; // Total size in bytes
+    public long time   ; // Total time of parses in all threads (ns)
+    public long wall   ; // Elapsed time of the batch (ns)
+    public long calls  ; // Total number of calls
+    public long succ   ; // How many resulted in success
+    public long fail   ; // How many resulted in failure, no backtrack
+    public long back   ; // How many resulted in backtrack
+    public long reuse  ; // How many were rescans with reuse
+    public long rescan ; // How many were rescans without reuse
+    public long totback; // Accumulated amount of backtrack
+    public int  maxback; // Maximum length of backtrack
+
+    //-----------------------------------------------------------------
+    //  Add totals of other files.
+    //-----------------------------------------------------------------
+    void add(final Totals t)
+      {
+        files   += t.files;
+        failed  += t.failed;
+        bytes   += t.bytes;
+        time    += t.time;
+        calls   += t.calls;
+        succ    += t.succ;
+        fail    += t.fail;
+        back    += t.back;
+        reuse   += t.reuse;
+        rescan  += t.rescan;
+        totback += t.totback;
+        if (t.maxback>maxback) maxback = t.maxback;
+      }
+
+    //-----------------------------------------------------------------
+    //  Add statistics of one parse.
+    //-----------------------------------------------------------------
+    void add(final Cache[] cacheList)
+      {
+        for (Cache s: cacheList)
+        {
+          calls   += s.calls;
+          succ    += s.succ;
+          fail    += s.fail;
+          back    += s.back;
+          reuse   += s.reuse;
+          rescan  += s.rescan;
+          totback += s.totback;
+          if (s.maxback>maxback) maxback = s.maxback;
+        }
+      }
+
+    //-----------------------------------------------------------------
+    //  Megabytes per second of elapsed time.
+    //-----------------------------------------------------------------
+    public double mbPerSecond()
+      { return wall==0? 0 : (bytes/1e6)/(wall/1e9); }
+
+    //-----------------------------------------------------------------
+    //  Files per second of elapsed time.
+    //-----------------------------------------------------------------
+    public double filesPerSecond()
+      { return wall==0? 0 : files/(wall/1e9); }
+  }
+
+
+  //=====================================================================
+  //
+  //  Invocation
+  //
+  //=====================================================================
+
+  public static void main(String argv[])
+    throws IOException,ClassNotFoundException,NoSuchMethodException
+    {
+      //=================================================================
+      //  Get and check command arguments.
+      //=================================================================
+      CommandArgs cmd = new CommandArgs
+             (argv,      // arguments to parse
+              "ea",      // options without argument
+              "PFjmc",   // options with argument
+              0,0);      // no positional arguments
+      if (cmd.nErrors()>0) return;
+
+      //---------------------------------------------------------------
+      //  Parser name and file list.
+      //---------------------------------------------------------------
+      String parsName = cmd.optArg('P');
+
+      if (parsName==null)
+      {
+        System.out.println("Specify -P parser name.");
+        return;
+      }
+
+      String listName = cmd.optArg('F');
+
+      if (listName==null)
+      {
+        System.out.println("Specify -F list of files.");
+        return;
+      }
+
+      //---------------------------------------------------------------
+      //  The -j option.
+      //---------------------------------------------------------------
+      int threads = Runtime.getRuntime().availableProcessors();
+      if (cmd.opt('j'))
+      {
+        try {threads = Integer.parseInt(cmd.optArg('j'));}
+        catch (NumberFormatException e) {threads = 0;}
+        if (threads<1)
+        {
+          System.out.println("-j must be a positive number.");
+          return;
+        }
+      }
+
+      //---------------------------------------------------------------
+      //  The -m option.
+      //---------------------------------------------------------------
+      int m = 0;
+      if (cmd.opt('m'))
+      {
+        String memo = cmd.optArg('m');
+        if (memo.equals("p")) m = ParserMemo.PACKRAT;
+        else if (memo.length()!=1) m = -1;
+        else m = 1 + "123456789".indexOf(memo.charAt(0));
+        if (m<1)
+        {
+          System.out.println("-m is outside the range 1-9 or p.");
+          return;
+        }
+      }
+
+      //---------------------------------------------------------------
+      //  The -c option.
+      //---------------------------------------------------------------
+      Charset charset = null;
+      if (cmd.opt('c'))
+      {
+        try {charset = Charset.forName(cmd.optArg('c'));}
+        catch (IllegalArgumentException e)
+        {
+          System.out.println("Character encoding '" + cmd.optArg('c')
+                             + "' is not supported.");
+          return;
+        }
+      }
+
+      //=================================================================
+      //  Set up the batch.
+      //=================================================================
+      Class<?> parserClass;
+      try{parserClass = Class.forName(parsName);}
+      catch (ClassNotFoundException e)
+      {
+        System.out.println("Parser '" + parsName + "' not found.");
+        return;
+      }
+
+      BatchParser batch = new BatchParser(parserClass);
+      batch.setThreads(threads);
+      batch.setCharset(charset);
+      if (cmd.opt('e'))
+        batch.setErrors(ParserBase.FARTHEST_ERROR);
+      batch.setArena(cmd.opt('a'));
+      try {batch.setMemo(m);}
+      catch (IllegalArgumentException e)
+      {
+        System.out.println(e.getMessage());
+        return;
+      }
+
+      //=================================================================
+      //  Get file names.
+      //=================================================================
+      Vector<String> files = new Vector<String>();
+
+      BufferedReader reader;
+      try {reader = new BufferedReader(new FileReader(listName));}
+      catch (FileNotFoundException e)
+      {
+        System.out.println("File '" + listName + "' was not found");
+        return;
+      }
+
+      String line = reader.readLine();
+      while (line!=null)
+      {
+        files.add(line);
+        line = reader.readLine();
+      }
+      reader.close();
+
+      if (files.size()==0)
+      {
+         System.out.println("No files to test.");
+         return;
+      }
+
+      //=================================================================
+      //  Process the files.
+      //=================================================================
+      Totals t = batch.parse(files);
+
+      //---------------------------------------------------------------
+      //  Write number of processed / failed files.
+      //---------------------------------------------------------------
+      System.out.println("\nTried " + t.files + " files using "
+                         + threads + " threads.");
+      if (t.failed==0)
+        System.out.println("All successfully parsed.");
+      else
+        System.out.println(t.failed + " failed.");
+
+      //---------------------------------------------------------------
+      //  Write statistics of test version.
+      //---------------------------------------------------------------
+      if (batch.isTest())
+      {
+        System.out.printf
+          ("%d calls: %d ok, %d failed, %d backtracked.%n",
+           t.calls, t.succ, t.fail, t.back);
+        System.out.printf("%d rescanned", t.rescan);
+        if (t.reuse==0)
+          System.out.print(".\n");
+        else
+          System.out.printf(", %d reused.%n",t.reuse);
+        if (t.back>0)
+          System.out.printf
+            (loc,"backtrack length: max %d, average %.1f.%n",
+             t.maxback, (float)t.totback/t.back);
+      }
+
+      //---------------------------------------------------------------
+      //  Write time and throughput.
+      //---------------------------------------------------------------
+      System.out.printf
+        (loc,"Total time %d ms, parsing %d ms in all threads.%n",
+         t.wall/1000000, t.time/1000000);
+      System.out.printf
+        (loc,"%d bytes: %.2f MB/s, %.1f files/s.%n",
+         t.bytes, t.mbPerSecond(), t.filesPerSecond());
+    }
+}
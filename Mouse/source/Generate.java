@@ -57,6 +57,32 @@
 //           a semicolon generated after 'while' caused infinite loop.
 //   Version 1.6.1
 //    140512 Class Generate made public.
+//   Version 1.7
+//    261017 Added option -C to memoize only expressions selected
+//           by statistics from TestParser.
+//    261017 Added option -R to generate recognizer.
+//    261017 Added option -d to dispatch choices on first character.
+//    261017 Generate tables for character classes; merge choice
+//           of character classes into one table lookup.
+//    261017 Identify terminals by number; generate table '$Terms'
+//           of their diagnostic texts.
+//    261017 Table for ^[s] is made from s, not from its 'first' set,
+//           which contains the characters not in s.
+//    261017 Added option -f to parse first without error info.
+//           The first pass is skipped if 'initFast' returns false.
+//    261017 Added option -i to pass items of the start rule
+//           to semantics as they are parsed.
+//    261017 Added option -t to record terminals only in the
+//           span of the Phrase that contains them.
+//    261017 Generate call to 'setTransient' for transient rules.
+//    261017 Generate 'cut' for cut '^', and a test of 'afterCut'
+//           after each alternative of Choice or Rule that has a cut.
+//    261017 Generate own procedure for '@e' that makes its Phrase
+//           transient and ends with 'acceptAtomic' or 'reuseAtomic'.
+//    261017 Generate 'skipTo' for (!t e)* and 'nextUntil' for e*+ t
+//           and e++ t where e is _ or ^[s] and t is "s" or [s].
+//    261017 Option -f ignored with -i: items passed to semantics
+//           in the first pass would be passed again in the second.
 //
 //=========================================================================
 
@@ -69,7 +95,13 @@ import mouse.runtime.SourceFile;
 import mouse.utility.CommandArgs;
 import mouse.utility.Convert;
 import mouse.utility.LineWriter;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.TimeZone;
@@ -138,7 +170,53 @@ import java.text.SimpleDateFormat;
 //
 //    -T Generate instrumented ('test') version of the parser.
 //
-//       (Options -M and -T are mutually exclusive.)
+//    -R Generate recognizer: a parser that does not construct Phrase
+//       objects and does not call semantic actions. Can not be used
+//       for grammar with boolean actions. Option -S is then ignored.
+//
+//       (Options -M, -T, and -R are mutually exclusive.)
+//
+//    -d Dispatch on first character. Optional.
+//       A choice first examines the next input character and does not
+//       call alternatives that can not start with it. The error message
+//       is the same as without -d. The option has no effect if the grammar
+//       specifies actions on failure, except with -R.
+//
+//    -f Parse in two passes. Optional.
+//       The generated 'parse' first runs without collecting information
+//       for error messages. Only if that fails, it parses the input again
+//       with full error information to produce the usual message.
+//       Semantic actions are then called again after 'init' of semantics.
+//       The option has no effect if the grammar specifies actions
+//       on failure, which use error information. It is ignored
+//       with -T, and with -i, because items passed to semantics
+//       by the first pass would be passed again by the second.
+//
+//    -i Pass items of the start rule to semantics. Optional.
+//       Each Phrase accepted as a part of the start rule, such as
+//       a Record in File = Record*, is given to method 'item'
+//       of semantics and removed from the right-hand side of the
+//       start rule. Memory then depends on the largest item, not on
+//       the length of input. The start rule must not backtrack over
+//       an accepted item. The option is ignored with -R.
+//       Option -f is ignored with -i.
+//
+//    -t Do not construct Phrase objects for terminals. Optional.
+//       A terminal only extends the text of the Phrase that contains it,
+//       and is not in its right-hand side: 'rhs(i)' and 'rhsSize()'
+//       in semantic actions see only rules and the contents of inner
+//       expressions. 'lhs().text()' and 'rhsText' give the same text
+//       as without -t. The option is ignored with -R.
+//
+//    -C <file>
+//       Memoize only the rules and inner expressions that are often
+//       called again at the same position. Optional; can only be
+//       specified together with -M.
+//       The <file> contains statistics written by TestParser with
+//       options -C and -d or -D, obtained from the test version of
+//       the parser for the same grammar. An expression is memoized
+//       if the number of its rescans and reuses is at least
+//       'minRescan' percent of its calls.
 //
 //
 //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
@@ -162,7 +240,13 @@ public class Generate
   String runName;    // Runtime package name
   boolean memo;      // Generate memo version?
   boolean test;      // Generate test version?
+  boolean recog;     // Generate recognizer?
   boolean skel;      // Generate semantics skeleton?
+  boolean dispatch;  // Dispatch on first character?
+  boolean twoPass;   // Parse first without error info?
+  boolean items;     // Pass items of start rule to semantics?
+  boolean noTerms;   // No Phrases for terminals?
+  String profName;   // Statistics file name
 
   //-------------------------------------------------------------------
   //  Output.
@@ -184,6 +268,15 @@ public class Generate
   //-------------------------------------------------------------------
   String cache = "";
 
+  //-------------------------------------------------------------------
+  //  Names of expressions to memoize, from statistics file,
+  //  or null to memoize all.
+  //  'minRescan' is the percentage of calls that must be rescans
+  //  or reuses for the expression to be memoized.
+  //-------------------------------------------------------------------
+  Hashtable<String,String> profile = null;
+  static final int minRescan = 5;
+
   //-------------------------------------------------------------------
   //  Visitors.
   //-------------------------------------------------------------------
@@ -206,6 +299,19 @@ public class Generate
   int exprNum;       // Number within containing Rule
   int done = 0;      // Count of created procedures
 
+  //-------------------------------------------------------------------
+  //  Number of choices dispatched on first character.
+  //-------------------------------------------------------------------
+  int switches = 0;
+
+  //-------------------------------------------------------------------
+  //  Tables of characters for character classes, generated as
+  //  arrays '$Set<n>'. 'setNames' maps contents of the table
+  //  (as generated) to its name; 'setLines' are the declarations.
+  //-------------------------------------------------------------------
+  Hashtable<String,String> setNames = new Hashtable<String,String>();
+  Vector<String> setLines = new Vector<String>();
+
 
   //=====================================================================
   //
@@ -235,8 +341,8 @@ public class Generate
       //---------------------------------------------------------------
       CommandArgs cmd = new CommandArgs
              (argv,         // arguments to parse
-              "MTs",        // options without argument
-              "GPSDpr",     // options with argument
+              "MTRsdfit",   // options without argument
+              "GPSDprC",    // options with argument
                0,0);        // no positional arguments
       if (cmd.nErrors()>0) return;
 
@@ -249,9 +355,15 @@ public class Generate
       dirName  = cmd.optArg('D');
       packName = cmd.optArg('p');
       runName  = cmd.optArg('r');
+      profName = cmd.optArg('C');
       test = cmd.opt('T');
       memo = cmd.opt('M');
+      recog = cmd.opt('R');
       skel = cmd.opt('s');
+      dispatch = cmd.opt('d');
+      twoPass = cmd.opt('f');
+      items = cmd.opt('i');
+      noTerms = cmd.opt('t');
 
       if (gramName==null)
       {
@@ -295,12 +407,51 @@ public class Generate
         f = null;
       }
 
-      if (memo & test)
+      if ((memo & test) | (memo & recog) | (test & recog))
+      {
+        System.err.println("Options -M, -T, and -R are mutually exclusive.");
+        errors = true;
+      }
+
+      if (recog & skel)
+      {
+        skel = false;
+        System.err.println("Option -s ignored because -R specified.");
+      }
+
+      if (recog & items)
+      {
+        items = false;
+        System.err.println("Option -i ignored because -R specified.");
+      }
+
+      if (recog & noTerms)
+      {
+        noTerms = false;
+        System.err.println("Option -t ignored because -R specified.");
+      }
+
+      if (twoPass & test)
+      {
+        twoPass = false;
+        System.err.println("Option -f ignored because -T specified.");
+      }
+
+      if (twoPass & items)
       {
-        System.err.println("Options -M and -T are mutually exclusive.");
+        twoPass = false;
+        System.err.println("Option -f ignored because -i specified.");
+      }
+
+      if (profName!=null & !memo)
+      {
+        System.err.println("-C can only be specified together with -M.");
         errors = true;
       }
 
+      if (profName!=null && !readProfile())
+        errors = true;
+
       if (errors) return;
 
       //---------------------------------------------------------------
@@ -313,6 +464,44 @@ public class Generate
       if (peg.notWF>0) return;
       peg.compact();
 
+      if (recog)
+        for (Expr.Rule rule: peg.rules)
+          for (Action act: rule.onSucc)
+            if (act!=null && act.and)
+            {
+              System.err.println("Option -R can not be used: rule '" + rule.name
+                                 + "' has boolean action '" + act.name + "'.");
+              return;
+            }
+
+      //---------------------------------------------------------------
+      //  Alternative not called because of dispatch would not execute
+      //  its action on failure, so dispatch is not used in that case.
+      //---------------------------------------------------------------
+      if (dispatch & !recog)
+        for (Expr.Rule rule: peg.rules)
+          for (Action act: rule.onFail)
+            if (act!=null && dispatch)
+            {
+              System.err.println("Option -d ignored: rule '" + rule.name
+                                 + "' has action on failure '" + act.name + "'.");
+              dispatch = false;
+            }
+
+      //---------------------------------------------------------------
+      //  Action on failure may use error information,
+      //  so it must not be called in a pass without it.
+      //---------------------------------------------------------------
+      if (twoPass & !recog)
+        for (Expr.Rule rule: peg.rules)
+          for (Action act: rule.onFail)
+            if (act!=null && twoPass)
+            {
+              System.err.println("Option -f ignored: rule '" + rule.name
+                                 + "' has action on failure '" + act.name + "'.");
+              twoPass = false;
+            }
+
       //---------------------------------------------------------------
       //  Get full path to grammar file, ready to include in comment.
       //---------------------------------------------------------------
@@ -363,6 +552,7 @@ public class Generate
       String    basePars = runName + ".ParserBase";
       if (memo) basePars = runName + ".ParserMemo";
       if (test) basePars = runName + ".ParserTest";
+      if (recog) basePars = runName + ".ParserRecognizer";
 
       out.BOX("This file was generated by Mouse 1.6.1 at " +
                date + " GMT\nfrom grammar '" + gramPath + "'.");
@@ -378,7 +568,8 @@ public class Generate
       out.line("");
       out.line("public class " + parsName + " extends " + basePars);
       out.line("{");
-      out.line("  final " + semName + " sem;");
+      if (!recog)
+        out.line("  final " + semName + " sem;");
       out.indent();
       out.line("");
 
@@ -387,28 +578,49 @@ public class Generate
       out.box("Constructor");
       out.line("public " + parsName + "()");
       out.line("  {");
-      out.line("    sem = new " + semName + "();");
-      out.line("    sem.rule = this;");
-      out.line("    super.sem = sem;");
+      if (!recog)
+      {
+        out.line("    sem = new " + semName + "();");
+        out.line("    sem.rule = this;");
+        out.line("    super.sem = sem;");
+      }
       if (memo | test)
         out.line("    caches = cacheList;");
+      out.line("    terms = $Terms;");
+      if (items)
+        out.line("    items = true;");
+      if (noTerms)
+        out.line("    noTerms = true;");
       out.line("  }");
       out.line("");
 
       out.box("Run the parser");
       out.line("public boolean parse(Source src)");
       out.line("  {");
+      if (twoPass)
+      {
+        out.line("    if (initFast(src))");
+        out.line("    {");
+        if (!recog)
+          out.line("      sem.init();");
+        out.line("      if (" + peg.rules[0].name + "()) return true;");
+        out.line("    }");
+      }
       out.line("    super.init(src);");
-      out.line("    sem.init();");
+      if (!recog)
+        out.line("    sem.init();");
       out.line("    if (" + peg.rules[0].name + "()) return true;");
       out.line("    return failure();");
       out.line("  }");
       out.line("");
 
-      out.box("Get semantics");
-      out.line("public " + semName+ " semantics()");
-      out.line("  { return sem; }");
-      out.line("");
+      if (!recog)
+      {
+        out.box("Get semantics");
+        out.line("public " + semName+ " semantics()");
+        out.line("  { return sem; }");
+        out.line("");
+      }
 
       out.BOX("Parsing procedures");
 
@@ -426,7 +638,7 @@ public class Generate
         out.indent();
         out.line("{");
         out.indent();
-        if (memo | test)
+        if (test || memoized(rule))
         {
           out.line("if (saved(" + rule.name + ")) return reuse();");
           if (test) cache = rule.name;
@@ -436,6 +648,8 @@ public class Generate
         else
           out.line("begin(\"" + rule.name + "\",\""
                    + Convert.toStringLit(rule.diagName) + "\");");
+        if (rule.isTransient && !recog)
+          out.line("setTransient();");
 
         //-------------------------------------------------------------
         //  Special case: single expression on right-hand side
@@ -444,7 +658,7 @@ public class Generate
         if ( rule.rhs.length==1 && rule.onFail[0]==null)
         {
           Expr e = rule.rhs[0];
-          Action act = rule.onSucc[0];
+          Action act = recog? null : rule.onSucc[0];
           inline(e,"reject(" + cache + ")");
           if (act==null)
             out.line("return accept(" + cache + ");");
@@ -466,27 +680,50 @@ public class Generate
         //-------------------------------------------------------------
         else
         {
+          boolean acts = false;
           for (int i=0;i<rule.rhs.length;i++)
-          {
-            Action succ = rule.onSucc[i];
-            Action fail = rule.onFail[i];
+            acts |= rule.onSucc[i]!=null | rule.onFail[i]!=null;
+          String set = recog | !acts? mergedSet(rule.rhs) : null;
 
-            if (succ==null)
-              out.line("if (" + ref(rule.rhs[i]) + ") return accept(" + cache + ");");
-            else if (succ.and)
-            {
-              out.line("if (" + ref(rule.rhs[i]) + " && "
-                       + "(sem." + succ.name + "()?true:boolReject())) return accept(" + cache + ");");
-            }
-            else
-            {
-              out.line("if (" + ref(rule.rhs[i]) + ")");
-              out.line("{ sem." + succ.name + "(); return accept(" + cache + "); }");
-            }
+          String[] alt = new String[rule.rhs.length];
+          if (set==null)
+            for (int i=0;i<rule.rhs.length;i++)
+              alt[i] = ref(rule.rhs[i]);
 
-            if (fail!=null)
-              out.line("else sem." + fail.name + "();");
+          Vector<String> labels = new Vector<String>();
+          Vector<boolean[]> groups = set!=null? null : dispatch(rule.rhs,labels);
 
+          if (set!=null)
+          {
+            out.line("if (nextIn(" + set + "," + termId(rule.rhs[0]) + ")) return accept(" + cache + ");");
+            for (int i=1;i<rule.rhs.length;i++)
+              for (String d: startDiag(rule.rhs[i]))
+                out.line("expected(\"" + Convert.toStringLit(d) + "\");");
+          }
+          else if (groups==null)
+          {
+            for (int i=0;i<rule.rhs.length;i++)
+              ruleAlt(rule,i,alt[i]);
+          }
+          else
+          {
+            out.line("switch (nextChar())");
+            out.line("{");
+            for (int k=0;k<groups.size();k++)
+            {
+              caseLabels(labels.elementAt(k));
+              boolean[] call = groups.elementAt(k);
+              for (int i=0;i<rule.rhs.length;i++)
+                if (call[i])
+                  ruleAlt(rule,i,alt[i]);
+                else
+                  for (String d: startDiag(rule.rhs[i]))
+                    out.line("expected(\"" + Convert.toStringLit(d) + "\");");
+              out.line("break;");
+              out.undent();
+              out.undent();
+            }
+            out.line("}");
           }
 
           out.line("return reject(" + cache + ");");
@@ -501,6 +738,45 @@ public class Generate
         createSubs();
       }
 
+      //---------------------------------------------------------------
+      //  Create table of diagnostic texts for terminals.
+      //---------------------------------------------------------------
+      out.BOX("Diagnostic texts of terminals");
+      out.line("");
+      out.line("static final String[] $Terms =");
+      out.line("{");
+      out.indent();
+      StringBuilder tb = new StringBuilder();
+      for (Expr expr: peg.terms)
+      {
+        String text = "\"" + Convert.toStringLit(termDiag(expr)) + "\"";
+        if (tb.length()+text.length()>65)
+        {
+          out.line(tb.toString());
+          tb = new StringBuilder();
+        }
+        tb.append(text + ",");
+      }
+      if (tb.length()>0)
+      {
+        tb.deleteCharAt(tb.length()-1);
+        out.line(tb.toString());
+      }
+      out.undent();
+      out.line("};");
+      out.line("");
+
+      //---------------------------------------------------------------
+      //  Create tables for character classes.
+      //---------------------------------------------------------------
+      if (setLines.size()>0)
+      {
+        out.BOX("Character sets");
+        out.line("");
+        for (String line: setLines)
+          out.line(line);
+      }
+
       //---------------------------------------------------------------
       //  If memo or test version:
       //  create Cache objects for rules and inner.
@@ -512,14 +788,17 @@ public class Generate
         out.line("");
 
         for (Expr.Rule rule: peg.rules)
-          out.line("final Cache " + rule.name + " = new Cache(\""
-                    + rule.name + "\",\""
-                    + Convert.toStringLit(diagName(rule)) + "\");") ;
+          if (test || memoized(rule))
+            out.line("final Cache " + rule.name + " = new Cache(\""
+                      + rule.name + "\",\""
+                      + Convert.toStringLit(diagName(rule)) + "\");") ;
 
         out.line("");
 
         for (Expr expr: subs)
-          if (isPred(expr))
+          if (!test && !memoized(expr))
+            continue;
+          else if (isPred(expr))
           {
             out.line("final Cache " + expr.name + " = new Cache(\""
                       + expr.name + "\",\""
@@ -555,8 +834,11 @@ public class Generate
       {
         Vector<Expr> temp = new Vector<Expr>();
         for (Expr.Rule r: peg.rules)
-          temp.add(r);
-        temp.addAll(subs);
+          if (test || memoized(r))
+            temp.add(r);
+        for (Expr e: subs)
+          if (test || memoized(e))
+            temp.add(e);
 
         if (test)
           for (Expr t: peg.terms)
@@ -581,8 +863,11 @@ public class Generate
 
           sb.append(name + ",");
         }
-        sb.deleteCharAt(sb.length()-1);
-        out.line(sb.toString());
+        if (sb.length()>0)
+        {
+          sb.deleteCharAt(sb.length()-1);
+          out.line(sb.toString());
+        }
 
         out.undent();
         out.line("};");
@@ -598,7 +883,98 @@ public class Generate
       System.out.println(peg.rules.length + " rules");
       System.out.println(subs.size()  + " unnamed");
       System.out.println(peg.terms.length + " terminals");
+      if (dispatch)
+        System.out.println(switches + " dispatched");
+      if (profile!=null)
+      {
+        int n = 0;
+        for (Expr.Rule r: peg.rules)
+          if (memoized(r)) n++;
+        for (Expr e: subs)
+          if (memoized(e)) n++;
+        System.out.println(n + " memoized");
+      }
+    }
+
+
+  //=====================================================================
+  //
+  //  Read statistics from TestParser and select expressions to memoize
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Each line of details in the file has the form
+  //  "name","",calls,ok,fail,back,resc,reuse,totbk,maxbk
+  //  with one more "" if TestParser was run with option -t.
+  //  Lines with totals for a file have a number instead of "" and are
+  //  skipped. Numbers for the same name are added over all files.
+  //-------------------------------------------------------------------
+  boolean readProfile()
+    {
+      Hashtable<String,long[]> stats = new Hashtable<String,long[]>();
+
+      try
+      {
+        BufferedReader reader = new BufferedReader(new FileReader(profName));
+        String line = reader.readLine();
+        while (line!=null)
+        {
+          if (line.startsWith("\""))
+          {
+            StringBuilder sb = new StringBuilder();
+            int q = 1;
+            while (q<line.length())
+            {
+              char c = line.charAt(q++);
+              if (c!='"') sb.append(c);
+              else if (q<line.length() && line.charAt(q)=='"') sb.append(line.charAt(q++));
+              else break;
+            }
+            String name = sb.toString();
+            String[] fields = line.substring(Math.min(q+1,line.length())).split(",");
+            int i = 0;
+            while (i<fields.length && fields[i].equals("\"\"")) i++;
+            if (i>0 && fields.length-i>=6)
+            {
+              long[] st = stats.get(name);
+              if (st==null)
+              {
+                st = new long[2];
+                stats.put(name,st);
+              }
+              st[0] += Long.parseLong(fields[i]);                  // calls
+              st[1] += Long.parseLong(fields[i+4])
+                     + Long.parseLong(fields[i+5]);                // resc + reuse
+            }
+          }
+          line = reader.readLine();
+        }
+        reader.close();
+      }
+      catch (FileNotFoundException e)
+      {
+        System.err.println("File '" + profName + "' was not found.");
+        return false;
+      }
+      catch (IOException e)
+      {
+        System.err.println("Error in file '" + profName + "' " + e.getMessage());
+        return false;
+      }
+      catch (NumberFormatException e)
+      {
+        System.err.println("File '" + profName + "' is not output from TestParser -C.");
+        return false;
+      }
 
+      profile = new Hashtable<String,String>();
+      for (String name: stats.keySet())
+      {
+        long[] st = stats.get(name);
+        if (st[1]>0 && 100*st[1]>=minRescan*st[0])
+          profile.put(name,name);
+      }
+      return true;
     }
 
 
@@ -743,6 +1119,9 @@ public class Generate
     public void visit(Expr.Not expr)
       { doExpr(expr); }
 
+    public void visit(Expr.Atomic expr)
+      { doExpr(expr); }
+
     public void visit(Expr.Plus expr)
       { doExpr(expr); }
 
@@ -758,6 +1137,9 @@ public class Generate
     public void visit(Expr.StarPlus expr)
       { doExpr(expr); }
 
+    public void visit(Expr.Cut expr)
+      { doExpr(expr); }
+
     public void visit(Expr.Ref expr)
       { result = expr.name + "()"; }
 
@@ -808,11 +1190,62 @@ public class Generate
 
     public void visit(Expr.Choice expr)
       {
-        for (Expr e: expr.expr)
-          out.line("if (" + ref(e) + ") return acceptInner(" + cache + ");");
+        String set = mergedSet(expr.expr);
+        String[] alt = new String[expr.expr.length];
+        if (set==null)
+          for (int i=0;i<expr.expr.length;i++)
+            alt[i] = ref(expr.expr[i]);
+
+        Vector<String> labels = new Vector<String>();
+        Vector<boolean[]> groups = set!=null? null : dispatch(expr.expr,labels);
+
+        if (set!=null)
+        {
+          out.line("if (nextIn(" + set + "," + termId(expr.expr[0]) + ")) return acceptInner(" + cache + ");");
+          for (int i=1;i<expr.expr.length;i++)
+            for (String d: startDiag(expr.expr[i]))
+              out.line("expected(\"" + Convert.toStringLit(d) + "\");");
+        }
+        else if (groups==null)
+        {
+          for (int i=0;i<alt.length;i++)
+          {
+            out.line("if (" + alt[i] + ") return acceptInner(" + cache + ");");
+            cutTest(expr.expr,i);
+          }
+        }
+        else
+        {
+          out.line("switch (nextChar())");
+          out.line("{");
+          for (int k=0;k<groups.size();k++)
+          {
+            caseLabels(labels.elementAt(k));
+            boolean[] call = groups.elementAt(k);
+            for (int i=0;i<alt.length;i++)
+              if (call[i])
+              {
+                out.line("if (" + alt[i] + ") return acceptInner(" + cache + ");");
+                cutTest(expr.expr,i);
+              }
+              else
+                for (String d: startDiag(expr.expr[i]))
+                  out.line("expected(\"" + Convert.toStringLit(d) + "\");");
+            out.line("break;");
+            out.undent();
+            out.undent();
+          }
+          out.line("}");
+        }
         out.line("return rejectInner(" + cache + ");");
       }
 
+    private void cutTest(Expr[] alt, int i)
+      {
+        if (hasCut(alt[i]) && i<alt.length-1)
+          out.line("if (afterCut()) return rejectInner(" + cache + ");");
+      }
+
     public void visit(Expr.Sequence expr)
       {
         for (Expr e: expr.expr)
@@ -832,6 +1265,13 @@ public class Generate
         out.line("return acceptNot(" + cache + ");");
       }
 
+    public void visit(Expr.Atomic expr)
+      {
+        if (!recog) out.line("setTransient();");
+        inline(expr.expr,"rejectInner(" + cache + ")");
+        out.line("return acceptAtomic(" + cache + ");");
+      }
+
     public void visit(Expr.Plus expr)
       {
         out.line("if (!" + ref(expr.expr) + ") return rejectInner(" + cache + ");");
@@ -841,7 +1281,11 @@ public class Generate
 
     public void visit(Expr.Star expr)
       {
-        out.line("while (" + ref(expr.expr) + ");");
+        String args = skipArgs(expr);
+        if (args!=null)
+          out.line("skipTo(" + args + ");");
+        else
+          out.line("while (" + ref(expr.expr) + ");");
         out.line("return acceptInner(" + cache + ");");
       }
 
@@ -853,16 +1297,31 @@ public class Generate
 
     public void visit(Expr.PlusPlus expr)
       {
+        String args = scanArgs(expr.expr2,expr.expr1);
         out.line("if (" + ref(expr.expr2) + ") return rejectInner(" + cache + ");");
-        out.line("do if (!" + ref(expr.expr1) + ") return rejectInner(" + cache + ");");
-        out.line("  while (!" + ref(expr.expr2) + ");");
+        if (args!=null)
+        {
+          out.line("if (!" + ref(expr.expr1) + ") return rejectInner(" + cache + ");");
+          out.line("if (!nextUntil(" + args + ")) return rejectInner(" + cache + ");");
+        }
+        else
+        {
+          out.line("do if (!" + ref(expr.expr1) + ") return rejectInner(" + cache + ");");
+          out.line("  while (!" + ref(expr.expr2) + ");");
+        }
         out.line("return acceptInner(" + cache + ");");
       }
 
     public void visit(Expr.StarPlus expr)
       {
-        out.line("while (!" + ref(expr.expr2) + ")");
-        out.line("  if (!" + ref(expr.expr1) + ") return rejectInner(" + cache + ");");
+        String args = scanArgs(expr.expr2,expr.expr1);
+        if (args!=null)
+          out.line("if (!nextUntil(" + args + ")) return rejectInner(" + cache + ");");
+        else
+        {
+          out.line("while (!" + ref(expr.expr2) + ")");
+          out.line("  if (!" + ref(expr.expr1) + ") return rejectInner(" + cache + ");");
+        }
         out.line("return acceptInner(" + cache + ");");
       }
 
@@ -887,6 +1346,12 @@ public class Generate
     public void visit(Expr.Any expr)
       { doTerm(expr); }
 
+    public void visit(Expr.Cut expr)
+      {
+        out.line("cut();");
+        out.line("return acceptInner(" + cache + ");");
+      }
+
     private void doTerm(Expr expr)
       {
         out.line("if (!" + ref(expr)+ ") return rejectInner(" + cache + ");");
@@ -920,14 +1385,65 @@ public class Generate
 
     public void visit(Expr.Choice expr)
       {
-        Expr e = expr.expr[0];
-        out.line("if (!" + ref(e));
-        for (int i=1;i<expr.expr.length;i++)
+        for (Expr e: expr.expr)        // Cut is tested in own procedure
+          if (hasCut(e))
+          {
+            out.line("if (!" + ref(expr) + ") return " + reject + ";");
+            return;
+          }
+
+        String set = mergedSet(expr.expr);
+        if (set!=null)
+        {
+          out.line("if (!nextIn(" + set + "," + termId(expr.expr[0]) + ")");
+          for (int i=1;i<expr.expr.length;i++)
+            for (String d: startDiag(expr.expr[i]))
+              out.line(" && !expected(\"" + Convert.toStringLit(d) + "\")");
+          out.line("   ) return " + reject + ";");
+          return;
+        }
+
+        String[] alt = new String[expr.expr.length];
+        for (int i=0;i<expr.expr.length;i++)
+          alt[i] = ref(expr.expr[i]);
+
+        Vector<String> labels = new Vector<String>();
+        Vector<boolean[]> groups = dispatch(expr.expr,labels);
+
+        if (groups==null)
+        {
+          out.line("if (!" + alt[0]);
+          for (int i=1;i<alt.length;i++)
+            out.line(" && !" + alt[i]);
+          out.line("   ) return " + reject + ";");
+          return;
+        }
+
+        out.line("switch (nextChar())");
+        out.line("{");
+        for (int k=0;k<groups.size();k++)
         {
-          e = expr.expr[i];
-          out.line(" && !" + ref(e));
+          caseLabels(labels.elementAt(k));
+          boolean[] call = groups.elementAt(k);
+          String and = "if (";
+          for (int i=0;i<alt.length;i++)
+            if (call[i])
+            {
+              out.line(and + "!" + alt[i]);
+              and = " && ";
+            }
+            else
+              for (String d: startDiag(expr.expr[i]))
+              {
+                out.line(and + "!expected(\"" + Convert.toStringLit(d) + "\")");
+                and = " && ";
+              }
+          out.line("   ) return " + reject + ";");
+          out.line("break;");
+          out.undent();
+          out.undent();
         }
-        out.line("   ) return " + reject + ";");
+        out.line("}");
       }
 
     public void visit(Expr.Sequence expr)
@@ -954,6 +1470,14 @@ public class Generate
           out.line("if (!" + ref(expr) + ") return " + reject + ";");
       }
 
+    public void visit(Expr.Atomic expr)
+      {
+        if (!expr.fal)
+          out.line(ref(expr) + ";");
+        else
+          out.line("if (!" + ref(expr) + ") return " + reject + ";");
+      }
+
     public void visit(Expr.Plus expr)
       {
         out.line("if (!" + ref(expr.expr) + ") return " + reject + ";");
@@ -961,20 +1485,39 @@ public class Generate
       }
 
     public void visit(Expr.Star expr)
-      { out.line("while (" + ref(expr.expr) + ");"); }
+      {
+        String args = skipArgs(expr);
+        if (args!=null)
+          out.line("skipTo(" + args + ");");
+        else
+          out.line("while (" + ref(expr.expr) + ");");
+      }
 
     public void visit(Expr.Query expr)
       { out.line(ref(expr.expr) + ";"); }
 
     public void visit(Expr.PlusPlus expr)
       {
+        String args = scanArgs(expr.expr2,expr.expr1);
         out.line("if (" + ref(expr.expr2) + ") return " + reject + ";");
+        if (args!=null)
+        {
+          out.line("if (!" + ref(expr.expr1) + ") return " + reject + ";");
+          out.line("if (!nextUntil(" + args + ")) return " + reject + ";");
+          return;
+        }
         out.line("do if (!" + ref(expr.expr1) + ") return " + reject + ";");
         out.line("  while (!" + ref(expr.expr2) + ");");
       }
 
     public void visit(Expr.StarPlus expr)
       {
+        String args = scanArgs(expr.expr2,expr.expr1);
+        if (args!=null)
+        {
+          out.line("if (!nextUntil(" + args + ")) return " + reject + ";");
+          return;
+        }
         out.line("while (!" + ref(expr.expr2) + ")");
         out.line("  if (!" + ref(expr.expr1) + ") return " + reject + ";");
       }
@@ -999,6 +1542,9 @@ public class Generate
     public void visit(Expr.Any expr)
       { doTerm(expr); }
 
+    public void visit(Expr.Cut expr)
+      { out.line("cut();"); }
+
     private void doTerm(Expr expr)
       { out.line("if (!" + ref(expr)+ ") return " + reject + ";"); }
   }
@@ -1018,6 +1564,7 @@ public class Generate
     {
       termVisitor.cash = test? (expr.name) : "";
       termVisitor.ccash = test? ("," + expr.name) : "";
+      termVisitor.id = "," + termId(expr);
       expr.accept(termVisitor);
       return termVisitor.result;
     }
@@ -1035,33 +1582,38 @@ public class Generate
     String cash;
     String ccash;
 
+    //-----------------------------------------------------------------
+    //  Input to Visitor: number of the terminal
+    //-----------------------------------------------------------------
+    String id;
+
     public void visit(Expr.StringLit expr)
       {
         String cLit = Convert.toCharLit(expr.s.charAt(0));
         String sLit = Convert.toStringLit(expr.s);
         if (expr.s.length()==1)
-          result = "('" + cLit + "'" + ccash + ")";
+          result = "('" + cLit + "'" + id + ccash + ")";
         else
-          result = "(\"" + sLit + "\"" + ccash + ")";
+          result = "(\"" + sLit + "\"" + id + ccash + ")";
       }
 
     public void visit(Expr.CharClass expr)
       {
         String cLit = Convert.toCharLit(expr.s.charAt(0));
-        String sLit = Convert.toStringLit(expr.s);
         if (expr.s.length()==1)
         {
           if (expr.hat)
-            result = "Not(\'" + cLit + "\'" + ccash + ")";
+            result = "Not(\'" + cLit + "\'" + id + ccash + ")";
           else
-           result = "(\'" + cLit + "\'" + ccash + ")";
+           result = "(\'" + cLit + "\'" + id + ccash + ")";
         }
         else
         {
+          String set = classSet(expr);
           if (expr.hat)
-            result = "NotIn(\"" + sLit + "\"" + ccash + ")";
+            result = "NotIn(" + set + id + ccash + ")";
           else
-            result = "In(\"" + sLit + "\"" + ccash + ")";
+            result = "In(" + set + id + ccash + ")";
         }
       }
 
@@ -1069,7 +1621,7 @@ public class Generate
       {
         String aLit = Convert.toCharLit(expr.a);
         String zLit = Convert.toCharLit(expr.z);
-        result = "In('"+ aLit + "','" + zLit + "'" + ccash + ")";
+        result = "In('"+ aLit + "','" + zLit + "'" + id + ccash + ")";
       }
 
     public void visit(Expr.Any expr)
@@ -1102,10 +1654,12 @@ public class Generate
           out.line("{");
           out.indent();
 
-          if (memo | test)
+          if (test || memoized(expr))
           {
             out.line("if (savedInner(" + procName + ")) return "
-                      + (isPred(expr)? "reusePred();" : "reuseInner();"));
+                      + (isPred(expr)? "reusePred();"
+                         : expr instanceof Expr.Atomic? "reuseAtomic();"
+                         : "reuseInner();"));
             if (test) cache = procName;
           }
 
@@ -1126,6 +1680,304 @@ public class Generate
       }
     }
 
+  //-------------------------------------------------------------------
+  //  Generate call to i-th alternative 'alt' of 'rule'
+  //  with its semantic actions.
+  //-------------------------------------------------------------------
+  void ruleAlt(Expr.Rule rule, int i, final String alt)
+    {
+      Action succ = recog? null : rule.onSucc[i];
+      Action fail = recog? null : rule.onFail[i];
+
+      if (succ==null)
+        out.line("if (" + alt + ") return accept(" + cache + ");");
+      else if (succ.and)
+      {
+        out.line("if (" + alt + " && "
+                 + "(sem." + succ.name + "()?true:boolReject())) return accept(" + cache + ");");
+      }
+      else
+      {
+        out.line("if (" + alt + ")");
+        out.line("{ sem." + succ.name + "(); return accept(" + cache + "); }");
+      }
+
+      if (fail!=null)
+        out.line("else sem." + fail.name + "();");
+
+      if (hasCut(rule.rhs[i]) && i<rule.rhs.length-1)
+        out.line("if (afterCut()) return reject(" + cache + ");");
+    }
+
+  //-------------------------------------------------------------------
+  //  Name of table for characters in 'chars'.
+  //  The table is created if it does not exist,
+  //  with 'comment' showing the expression it was made for.
+  //  Bit 'c%64' of element 'c/64' is set for each character 'c'.
+  //-------------------------------------------------------------------
+  String charSet(final BitSet chars, final String comment)
+    {
+      long[] bits = new long[(chars.length()+63)/64];
+      for (int c=chars.nextSetBit(0);c>=0;c=chars.nextSetBit(c+1))
+        bits[c>>6] |= 1L<<c;
+
+      StringBuilder sb = new StringBuilder();
+      for (long b: bits)
+        sb.append((sb.length()>0? "," : "") + "0x" + Long.toHexString(b) + "L");
+      String table = sb.toString();
+
+      String name = setNames.get(table);
+      if (name!=null) return name;
+
+      name = "$Set" + setNames.size();
+      setNames.put(table,name);
+      setLines.add("// " + Convert.toComment(comment));
+      setLines.add("static final long[] " + name + " =");
+      int i = 0;
+      while (i<table.length())
+      {
+        int j = i + 60<table.length()? table.indexOf(',',i+50)+1 : table.length();
+        setLines.add((i==0? "  {" : "   ") + table.substring(i,j)
+                     + (j==table.length()? "};" : ""));
+        i = j;
+      }
+      return name;
+    }
+
+  //-------------------------------------------------------------------
+  //  Name of table for the characters listed in [s] or ^[s].
+  //-------------------------------------------------------------------
+  String classSet(final Expr.CharClass expr)
+    {
+      BitSet chars = new BitSet();
+      for (int i=0;i<expr.s.length();i++)
+        chars.set(expr.s.charAt(i));
+      return charSet(chars,expr.asString());
+    }
+
+  //-------------------------------------------------------------------
+  //  If the loop e*+ t can be done by 'nextUntil', or (!t e)*
+  //  by 'skipTo', return their arguments. Otherwise return null.
+  //  This is the case if 'e' is _ or ^[s] and 't' is "s" or [s].
+  //  Not used in test version where terminals are counted.
+  //-------------------------------------------------------------------
+  String scanArgs(final Expr t, final Expr e)
+    {
+      if (test) return null;
+      String args;
+      if (t instanceof Expr.StringLit)
+        args = "\"" + Convert.toStringLit(((Expr.StringLit)t).s) + "\"";
+      else if (t instanceof Expr.CharClass && !((Expr.CharClass)t).hat)
+        args = classSet((Expr.CharClass)t);
+      else return null;
+      args += "," + termId(t);
+
+      if (e instanceof Expr.Any)
+        return args + ",null,0";
+      if (e instanceof Expr.CharClass && ((Expr.CharClass)e).hat)
+        return args + "," + classSet((Expr.CharClass)e) + "," + termId(e);
+      return null;
+    }
+
+  //-------------------------------------------------------------------
+  //  Arguments of 'skipTo' if 'expr' is (!t e)* as for 'scanArgs',
+  //  otherwise null.
+  //-------------------------------------------------------------------
+  String skipArgs(final Expr.Star expr)
+    {
+      if (!(expr.expr instanceof Expr.Sequence)) return null;
+      Expr[] seq = ((Expr.Sequence)expr.expr).expr;
+      if (seq.length!=2 || !(seq[0] instanceof Expr.Not)) return null;
+      return scanArgs(((Expr.Not)seq[0]).expr,seq[1]);
+    }
+
+  //-------------------------------------------------------------------
+  //  If 'alt' are alternatives of a choice that consists only
+  //  of one-character terminals [s], [a-z] and 'c', return
+  //  name of the table for their union. Otherwise return null.
+  //  Not used in test version where terminals are counted.
+  //-------------------------------------------------------------------
+  String mergedSet(final Expr[] alt)
+    {
+      if (test || alt.length<2) return null;
+      BitSet chars = new BitSet();
+      StringBuilder comment = new StringBuilder();
+      for (Expr e: alt)
+      {
+        if (e instanceof Expr.CharClass && ((Expr.CharClass)e).hat) return null;
+        if (e instanceof Expr.StringLit && ((Expr.StringLit)e).s.length()>1) return null;
+        if (!isTerm(e) || e instanceof Expr.Any) return null;
+        chars.or(e.first);
+        comment.append((comment.length()>0? " / " : "") + e.asString());
+      }
+      return charSet(chars,comment.toString());
+    }
+
+  //-------------------------------------------------------------------
+  //  Dispatch of choice between alternatives 'alt' on first character.
+  //  An alternative that can not start with the next character
+  //  is not called; the failure it would register is registered
+  //  by 'expected' with texts from 'startDiag'. An alternative is
+  //  always called if it may succeed on empty string, may start with
+  //  character outside ASCII, or the texts are not known in advance.
+  //  Returns null if nothing can be skipped. Otherwise returns,
+  //  for each group of characters, the alternatives to call.
+  //  The corresponding case labels are returned in 'labels'.
+  //  The last group is 'default:', for all other characters
+  //  and end of text.
+  //-------------------------------------------------------------------
+  Vector<boolean[]> dispatch(final Expr[] alt, Vector<String> labels)
+    {
+      if (!dispatch) return null;
+
+      int n = alt.length;
+      boolean[] always = new boolean[n];
+      boolean skip = false;
+      for (int i=0;i<n;i++)
+      {
+        always[i] = alt[i].first.nextSetBit(128)>=0 || startDiag(alt[i])==null;
+        skip |= !always[i];
+      }
+      if (!skip) return null;
+
+      Vector<boolean[]> groups = new Vector<boolean[]>();
+      Vector<StringBuilder> cases = new Vector<StringBuilder>();
+      for (char c=0;c<128;c++)
+      {
+        boolean[] call = new boolean[n];
+        for (int i=0;i<n;i++)
+          call[i] = always[i] || alt[i].first.get(c);
+        if (Arrays.equals(call,always)) continue;
+
+        int k = 0;
+        while (k<groups.size() && !Arrays.equals(groups.elementAt(k),call)) k++;
+        if (k==groups.size())
+        {
+          groups.add(call);
+          cases.add(new StringBuilder());
+        }
+        StringBuilder sb = cases.elementAt(k);
+        int line = sb.length() - sb.lastIndexOf("\n") - 1;
+        if (sb.length()>0)
+          sb.append(line>60? "\n" : " ");
+        sb.append("case '" + Convert.toCharLit(c) + "':");
+      }
+
+      for (StringBuilder sb: cases)
+        labels.add(sb.toString());
+      groups.add(always);
+      labels.add("default:");
+      switches++;
+      return groups;
+    }
+
+  //-------------------------------------------------------------------
+  //  Write case labels of dispatch and indent for the statements.
+  //-------------------------------------------------------------------
+  void caseLabels(final String labels)
+    {
+      out.indent();
+      for (String label: labels.split("\n"))
+        out.line(label);
+      out.indent();
+    }
+
+  //-------------------------------------------------------------------
+  //  Texts registered by failure of 'expr' at its start,
+  //  or null if they are not known in advance.
+  //  This is what 'expr' registers when the next character
+  //  is not in its 'first' set; then it can only fail at start.
+  //-------------------------------------------------------------------
+  Vector<String> startDiag(Expr expr)
+    {
+      if (expr.nul) return null;
+
+      if (expr instanceof Expr.Sequence)
+        return startDiag(((Expr.Sequence)expr).expr[0]);
+
+      if (expr instanceof Expr.Plus)
+        return startDiag(((Expr.Plus)expr).expr);
+
+      if (expr instanceof Expr.Atomic)
+        return startDiag(((Expr.Atomic)expr).expr);
+
+      Vector<String> diag = new Vector<String>();
+
+      if (expr instanceof Expr.Choice)
+      {
+        for (Expr e: ((Expr.Choice)expr).expr)
+        {
+          Vector<String> d = startDiag(e);
+          if (d==null) return null;
+          diag.addAll(d);
+        }
+      }
+
+      else if (expr instanceof Expr.Ref)
+      {
+        Expr.Rule rule = ((Expr.Ref)expr).rule;
+        diag.add(rule.diagName==null? rule.name : rule.diagName);
+      }
+
+      else if (expr instanceof Expr.CharClass && ((Expr.CharClass)expr).hat)
+        return null;
+
+      else if (isTerm(expr) && !(expr instanceof Expr.Any))
+        diag.add(termDiag(expr));
+
+      else return null;
+
+      return diag;
+    }
+
+  //-------------------------------------------------------------------
+  //  Number of terminal 'expr' (its index in 'peg.terms').
+  //-------------------------------------------------------------------
+  int termId(Expr expr)
+    {
+      for (int i=0;i<peg.terms.length;i++)
+        if (peg.terms[i]==expr) return i;
+      throw new Error("SNOC " + expr.asString());
+    }
+
+  //-------------------------------------------------------------------
+  //  Diagnostic text of terminal 'expr' when it fails.
+  //  For ^[s] and ^'c' this is the text for [s] and 'c';
+  //  the runtime adds 'not'.
+  //-------------------------------------------------------------------
+  String termDiag(Expr expr)
+    {
+      if (expr instanceof Expr.StringLit)
+        return "'" + ((Expr.StringLit)expr).s + "'";
+
+      if (expr instanceof Expr.CharClass)
+      {
+        Expr.CharClass cc = (Expr.CharClass)expr;
+        if (cc.s.length()==1)
+          return "'" + cc.s + "'";
+        else
+          return "[" + cc.s + "]";
+      }
+
+      if (expr instanceof Expr.Range)
+      {
+        Expr.Range r = (Expr.Range)expr;
+        return "[" + r.a + "-" + r.z + "]";
+      }
+
+      return "any character";
+    }
+
+  //-------------------------------------------------------------------
+  //  Is 'expr' to be memoized in memo version?
+  //-------------------------------------------------------------------
+  boolean memoized(Expr expr)
+    {
+      if (!memo) return false;
+      if (profile==null) return true;
+      return profile.containsKey(expr.name);
+    }
+
   //-------------------------------------------------------------------
   //  isPred
   //-------------------------------------------------------------------
@@ -1149,6 +2001,19 @@ public class Generate
 
     }
 
+  //-------------------------------------------------------------------
+  //  hasCut: is 'expr' a Sequence containing cut '^'?
+  //  The Choice or Rule that has it as alternative does not try
+  //  the next alternatives if it failed after the cut.
+  //-------------------------------------------------------------------
+  boolean hasCut(Expr expr)
+    {
+      if (!(expr instanceof Expr.Sequence)) return false;
+      for (Expr e: ((Expr.Sequence)expr).expr)
+        if (e instanceof Expr.Cut) return true;
+      return false;
+    }
+
   //-------------------------------------------------------------------
   //  Get diagnostic name of a Rule
   //-------------------------------------------------------------------
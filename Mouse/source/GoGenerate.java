@@ -24,6 +24,9 @@
 //  Change log
 //   Version 1.6.1
 //    141201 Copied from Java 1.6.1 Generator and made a golang version. (dtyree)
+//   Version 1.7
+//    261017 Refuse grammar with cut '^': the Go runtime does not have it.
+//    261017 Refuse grammar with '@e' for the same reason.
 //
 //=========================================================================
 
@@ -278,6 +281,22 @@ public class GoGenerate
       if (peg.notWF>0) return;
       peg.compact();
 
+      for (Expr e: peg.subs)
+      {
+        if (e instanceof Expr.Atomic)
+        {
+          System.err.println("Atomic '@' is not supported for Go.");
+          return;
+        }
+        if (!(e instanceof Expr.Sequence)) continue;
+        for (Expr x: ((Expr.Sequence)e).expr)
+          if (x instanceof Expr.Cut)
+          {
+            System.err.println("Cut '^' is not supported for Go.");
+            return;
+          }
+      }
+
       //---------------------------------------------------------------
       //  Get full path to grammar file, ready to include in comment.
       //---------------------------------------------------------------
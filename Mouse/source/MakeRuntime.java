@@ -22,6 +22,14 @@
 //    100414 Created for Mouse 1.2.
 //   Version 1.6.1
 //    140512 Class MakeRuntime made public.
+//   Version 1.7
+//    261017 Added ParserRecognizer.
+//    261017 Added LineIndex.
+//    261017 Added SourceBytes.
+//    261017 Added SourceLarge.
+//    261017 Added SourceStream.
+//    261017 Added ParserPool.
+//    261017 Added SourceLines.
 //
 //=========================================================================
 
@@ -130,13 +138,20 @@ public class MakeRuntime
       //  Write files.
       //---------------------------------------------------------------
       write("CurrentRule.java");
+      write("LineIndex.java");
       write("ParserBase.java");
       write("ParserMemo.java");
+      write("ParserPool.java");
+      write("ParserRecognizer.java");
       write("ParserTest.java");
       write("Phrase.java");
       write("SemanticsBase.java");
       write("Source.java");
+      write("SourceBytes.java");
       write("SourceFile.java");
+      write("SourceLarge.java");
+      write("SourceLines.java");
+      write("SourceStream.java");
       write("SourceString.java");
     }
 
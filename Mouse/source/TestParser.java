@@ -44,12 +44,15 @@
 //    130416 Added option -t.
 //   Version 1.6.1
 //    140512 Class TestParser made public.
+//   Version 1.7
+//    261017 Option -m accepts 'p' for packrat parsing.
 //
 //=========================================================================
 
 package mouse;
 
 import mouse.runtime.ParserTest.Cache;
+import mouse.runtime.ParserMemo;
 import mouse.runtime.Source;
 import mouse.runtime.SourceFile;
 import mouse.runtime.SourceString;
@@ -106,7 +109,8 @@ import java.util.Vector;
 //    -m <n>
 //       Amount of memoization. Optional.
 //       <n> is a digit from 1 through 9 specifying the number of results
-//       to be cached. Default is no memoization.
+//       to be cached, or letter 'p' to cache all results (packrat parsing).
+//       Default is no memoization.
 //
 //    -T <string>
 //       Tracing switches. Optional.
@@ -241,11 +245,12 @@ public class TestParser
       if (cmd.opt('m'))
       {
         String memo = cmd.optArg('m');
-        if (memo.length()!=1) m = -1;
+        if (memo.equals("p")) m = ParserMemo.PACKRAT;
+        else if (memo.length()!=1) m = -1;
         else m = 1 + "123456789".indexOf(memo.charAt(0));
         if (m<1)
         {
-          System.out.println("-m is outside the range 1-9.");
+          System.out.println("-m is outside the range 1-9 or p.");
           return;
         }
       }
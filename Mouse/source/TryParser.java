@@ -43,13 +43,22 @@
 //    130415 Added option '-t'.
 //   Version 1.6.1
 //    140512 Class TryParser made public.
+//   Version 1.7
+//    261017 Option -m accepts 'p' for packrat parsing.
+//    261017 Added option '-e'.
+//    261017 Added option '-c'.
+//    261017 Added option '-r'. Use one SourceString for all input lines.
+//    261017 Added option '-a'.
 //
 //=========================================================================
 
 
 package mouse;
 
+import mouse.runtime.ParserBase;
+import mouse.runtime.ParserMemo;
 import mouse.runtime.Source;
+import mouse.runtime.SourceBytes;
 import mouse.runtime.SourceFile;
 import mouse.runtime.SourceString;
 import mouse.utility.CommandArgs;
@@ -60,6 +69,7 @@ import java.io.FileReader;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.FileNotFoundException;
+import java.nio.charset.Charset;
 import java.util.Vector;
 
 
@@ -101,7 +111,8 @@ import java.util.Vector;
 //       Amount of memoization. Optional.
 //       Applicable only to a parser generated with option -M or -T.
 //       <n> is a digit from 1 through 9 specifying the number of results
-//       to be cached. Default is no memoization.
+//       to be cached, or letter 'p' to cache all results (packrat parsing).
+//       Default is no memoization.
 //
 //    -T <string>
 //       Tracing switches. Optional.
@@ -109,8 +120,24 @@ import java.util.Vector;
 //       object, where it can be used it to activate any trace
 //       programmed there.
 //
+//    -c <charset>
+//       Character encoding of files for -f and -F. Optional.
+//       Default is the default encoding of the platform.
+//       Files in US-ASCII or ISO-8859-1 are read without decoding.
+//
 //    -t Show timing for -f and -F.
 //
+//    -e Keep error information only for the farthest failure
+//       (error mode FARTHEST_ERROR). Has no effect with -m.
+//
+//    -a Use Phrase objects again when they are not needed any more
+//       (arena mode). Has no effect with -m.
+//
+//    -r <n>
+//       Parse each input <n> times with the same parser and Source,
+//       and show the average time per parse in microseconds. Optional.
+//       Shows the cost of setting up a parse for short inputs.
+//
 //  If you do not specify -f or -F, the parser is executed interactively,
 //  prompting for input by printing '>'.
 //  It is invoked separately for each input line after you press 'Enter'.
@@ -136,6 +163,8 @@ public class TryParser
   static Class<?> parserClass;
   static Method settrace; // Set trace switches
   static Method setmemo;  // Set amount of memo
+  static Method seterrors;// Set error mode
+  static Method setarena; // Set arena mode
   static Method parse;    // Run parser
 
   //-------------------------------------------------------------------
@@ -143,6 +172,16 @@ public class TryParser
   //-------------------------------------------------------------------
   static Object parser;
 
+  //-------------------------------------------------------------------
+  //  Character encoding of files, or null for default.
+  //-------------------------------------------------------------------
+  static Charset charset;
+
+  //-------------------------------------------------------------------
+  //  Number of times to parse each input.
+  //-------------------------------------------------------------------
+  static int repeat;
+
   //=====================================================================
   //
   //  Invocation
@@ -159,8 +198,8 @@ public class TryParser
       //=================================================================
       cmd = new CommandArgs
              (argv,      // arguments to parse
-              "t",       // options without argument
-              "PFfmT",   // options with argument
+              "tea",     // options without argument
+              "PFfmTcr", // options with argument
               0,0);      // no positional arguments
       if (cmd.nErrors()>0) return;
 
@@ -182,11 +221,42 @@ public class TryParser
       if (cmd.opt('m'))
       {
         String memo = cmd.optArg('m');
-        if (memo.length()!=1) m = -1;
+        if (memo.equals("p")) m = ParserMemo.PACKRAT;
+        else if (memo.length()!=1) m = -1;
         else m = 1 + "123456789".indexOf(memo.charAt(0));
         if (m<1)
         {
-          System.out.println("-m is outside the range 1-9.");
+          System.out.println("-m is outside the range 1-9 or p.");
+          return;
+        }
+      }
+
+      //---------------------------------------------------------------
+      //  The -c option.
+      //---------------------------------------------------------------
+      charset = null;
+      if (cmd.opt('c'))
+      {
+        try {charset = Charset.forName(cmd.optArg('c'));}
+        catch (IllegalArgumentException e)
+        {
+          System.out.println("Character encoding '" + cmd.optArg('c')
+                             + "' is not supported.");
+          return;
+        }
+      }
+
+      //---------------------------------------------------------------
+      //  The -r option.
+      //---------------------------------------------------------------
+      repeat = 1;
+      if (cmd.opt('r'))
+      {
+        try {repeat = Integer.parseInt(cmd.optArg('r'));}
+        catch (NumberFormatException e) {repeat = 0;}
+        if (repeat<1)
+        {
+          System.out.println("-r must be a positive number.");
           return;
         }
       }
@@ -240,11 +310,32 @@ public class TryParser
       }
 
       //---------------------------------------------------------------
-      //  Instantiate the parser, set trace and (optionally) memo.
+      //  Find the 'setErrors' method.
+      //  A recognizer does not have it: it keeps only farthest failure.
+      //---------------------------------------------------------------
+      seterrors = null;
+      try {seterrors = parserClass.getMethod("setErrors",int.class);}
+      catch (NoSuchMethodException e) {}
+
+      //---------------------------------------------------------------
+      //  Find the 'setArena' method.
+      //  A recognizer does not have it: it does not build Phrases.
+      //---------------------------------------------------------------
+      setarena = null;
+      try {setarena = parserClass.getMethod("setArena",boolean.class);}
+      catch (NoSuchMethodException e) {}
+
+      //---------------------------------------------------------------
+      //  Instantiate the parser, set trace and (optionally) memo
+      //  and error mode.
       //---------------------------------------------------------------
       parser = parserClass.newInstance();
       settrace.invoke(parser,trace);
       if (setmemo!=null) setmemo.invoke(parser,m);
+      if (cmd.opt('e') && seterrors!=null)
+        seterrors.invoke(parser,ParserBase.FARTHEST_ERROR);
+      if (cmd.opt('a') && setarena!=null)
+        setarena.invoke(parser,true);
 
       //=================================================================
       //  If no input files given, run parser interactively.
@@ -333,7 +424,13 @@ public class TryParser
   static boolean test(final String name)
     throws IllegalAccessException,InvocationTargetException
     {
-      Source src = new SourceFile(name);
+      Source src;
+      if (charset==null)
+        src = new SourceFile(name);
+      else if (SourceBytes.isSingleByte(charset))
+        src = new SourceBytes(name,charset);
+      else
+        src = new SourceFile(name,charset);
       if (!src.created())
         return false;
 
@@ -341,7 +438,7 @@ public class TryParser
 
       long t0 = System.currentTimeMillis();
 
-      boolean parsed = (Boolean)(parse.invoke(parser,src));
+      boolean parsed = run(src);
 
       long t1 = System.currentTimeMillis();
 
@@ -369,6 +466,7 @@ public class TryParser
     {
       BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
       String input;
+      SourceString src = new SourceString("");
       while (true)
       {
         System.out.print("> ");
@@ -381,9 +479,29 @@ public class TryParser
         }
         if (input.length()==0) return;
 
-        SourceString src = new SourceString(input);
-
-        boolean parsed = (Boolean)(parse.invoke(parser,src));
+        run(src.set(input));
       }
     }
+
+
+  //=====================================================================
+  //
+  //  Run parser on 'src' the number of times given by -r
+  //
+  //=====================================================================
+
+  static boolean run(final Source src)
+    throws IllegalAccessException,InvocationTargetException
+    {
+      long t0 = System.nanoTime();
+      boolean parsed = (Boolean)(parse.invoke(parser,src));
+      for (int i=1;i<repeat && parsed;i++)
+        parsed = (Boolean)(parse.invoke(parser,src));
+      long t1 = System.nanoTime();
+
+      if (parsed && repeat>1)
+        System.out.println("--- " + String.format("%.2f",(t1-t0)/1000.0/repeat)
+                           + " us per parse.");
+      return parsed;
+    }
 }
\ No newline at end of file
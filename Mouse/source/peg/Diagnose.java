@@ -22,6 +22,9 @@
 //    101109 Created for version 1.3.
 //   Version 1.4
 //    111010 Completed DiagVisitor with 'StarPlus' and 'PlusPlus'.
+//   Version 1.7
+//    261017 Skip 'Cut' in Sequence and Choice: it is not a nonterminal.
+//    261017 Added 'Atomic' to DiagVisitor.
 //
 //=========================================================================
 
@@ -270,6 +273,7 @@ class Diagnose
       {
         for (int i=0; i<expr.expr.length; i++)
         {
+          if (expr.expr[i] instanceof Expr.Cut) continue;
           first.set(expr.index,expr.expr[i].index);
           if (!expr.expr[i].nul) break;
         }
@@ -287,6 +291,12 @@ class Diagnose
     public void visit(Expr.Not expr)
       { first.set(expr.index,expr.expr.index); }
 
+    //-----------------------------------------------------------------
+    //  Atomic.
+    //-----------------------------------------------------------------
+    public void visit(Expr.Atomic expr)
+      { first.set(expr.index,expr.expr.index); }
+
     //-----------------------------------------------------------------
     //  Plus.
     //-----------------------------------------------------------------
@@ -343,7 +353,8 @@ class Diagnose
           if (!list[i].fal)
             choice.add(diagName(list[i]) + " in " + diagName(expr));
         for (Expr e: list)
-          first.set(expr.index,e.index);
+          if (!(e instanceof Expr.Cut))
+            first.set(expr.index,e.index);
       }
   }
 }
@@ -31,12 +31,18 @@
 //    110920 Added subclasses 'PlusPlus' and 'StarPlus'.
 //   Version 1.5.1
 //    120102 (Steve Owens) Removed unused import.
-//
+//   Version 1.7
+//    261017 Added 'first'.
+//    261017 Added 'isTransient' to 'Rule'.
+//    261017 Added subclass 'Cut'.
+//    261017 Added subclass 'Atomic'.
 //
 //=========================================================================
 
 package mouse.peg;
 
+import java.util.BitSet;
+
 
 //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
 //
@@ -51,6 +57,7 @@ package mouse.peg;
 //  - Expr.Sequence - sequence of two or more expressions.
 //  - Expr.And - expression preceded by '&'.
 //  - Expr.Not - expression preceded by '!'.
+//  - Expr.Atomic - expression preceded by '@'.
 //  - Expr.Plus - expression followed by '+'.
 //  - Expr.Star - expression followed by '*'.
 //  - Expr.Query - expression followed by '?'.
@@ -61,6 +68,7 @@ package mouse.peg;
 //  - Expr.CharClass - character class.
 //  - Expr.Range - character from range.
 //  - Expr.Any - any character.
+//  - Expr.Cut - cut '^' in a sequence.
 //
 //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
 
@@ -96,6 +104,12 @@ public abstract class Expr
   public boolean fal = false; // May fail
   public boolean WF  = false; // Is well-formed
 
+  //-------------------------------------------------------------------
+  //  Characters that may start a non-empty string consumed
+  //  by the expression (superset, computed by PEG).
+  //-------------------------------------------------------------------
+  public BitSet first = new BitSet();
+
 
   //=====================================================================
   //
@@ -137,6 +151,7 @@ public abstract class Expr
     public Expr[] rhs;      // Expressions on the right-hand side.
     public Action[] onSucc; // Actions for components of Expr.
     public Action[] onFail;
+    public boolean isTransient = false; // Marked 'transient'.
 
 
     //-----------------------------------------------------------------
@@ -302,6 +317,44 @@ public abstract class Expr
 
 
 
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+  //
+  //  Class Expr.Atomic
+  //
+  //  Represents expression '@expr'. It consumes the same text as 'expr',
+  //  but its result is a single Phrase for the whole text, with no
+  //  right-hand side, as for a terminal. Meant for repetitions such as
+  //  @Statement*, whose intermediate Phrases are then not kept.
+  //
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+  public static class Atomic extends Expr
+  {
+    //-----------------------------------------------------------------
+    //  Data
+    //-----------------------------------------------------------------
+    public Expr expr;
+
+    //-----------------------------------------------------------------
+    //  Create object with specified 'expr'.
+    //-----------------------------------------------------------------
+    public Atomic(final Expr expr)
+      { this.expr = expr; }
+
+    //-----------------------------------------------------------------
+    //  Accept visitor.
+    //-----------------------------------------------------------------
+    public void accept(Visitor v)
+      { v.visit(this); }
+
+    //-------------------------------------------------------------------
+    //  Binding strength.
+    //-------------------------------------------------------------------
+    int bind() { return 3; }
+  }
+
+
+
   //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
   //
   //  Class Expr.Plus
@@ -654,6 +707,37 @@ public abstract class Expr
     public void accept(Visitor v)
       { v.visit(this); }
   }
+
+
+
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+  //
+  //  Class Expr.Cut
+  //
+  //  Represents cut '^' in a sequence. It consumes nothing and never
+  //  fails. Once the sequence has passed it, the sequence is the last
+  //  alternative tried by the Choice or Rule that has it as alternative.
+  //
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+  public static class Cut extends Expr
+  {
+    //-----------------------------------------------------------------
+    //  Create.
+    //-----------------------------------------------------------------
+    public Cut()
+      {
+        nul = true;
+        WF  = true;
+        asString = "^";
+      }
+
+    //-----------------------------------------------------------------
+    //  Accept visitor.
+    //-----------------------------------------------------------------
+    public void accept(Visitor v)
+      { v.visit(this); }
+  }
 }
 
 
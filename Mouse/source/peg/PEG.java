@@ -29,11 +29,16 @@
 //   Version 1.5.1
 //    120102 (Steve Owens) Removed unused import.
 //           Removed unused varable 'nul1' in 'visit(Expr.StarPlus)'.
+//   Version 1.7
+//    261017 Added computation of 'first'.
+//    261017 Reconstruct 'transient' in front of Rule.
+//    261017 Completed all Visitors with 'Atomic'.
 //
 //=========================================================================
 
 package mouse.peg;
 
+import java.util.BitSet;
 import java.util.Hashtable;
 import java.util.HashSet;
 import mouse.utility.Convert;
@@ -55,6 +60,8 @@ import mouse.runtime.Source;
 //
 //  The constructor builds this structure from a file containing PEG,
 //  computes Ford's attributes, and checks various aspects of the grammar.
+//  It also computes for each expression the set of characters
+//  that may start a non-empty string consumed by it.
 //
 //  Method 'compact' eliminates duplicate subexpressions from the
 //  parsed grammar. After this operation, the parsed grammar is no longer
@@ -135,6 +142,7 @@ public class PEG
       //---------------------------------------------------------------
       attributes();
       computeWF();
+      firstChars();
 
       //---------------------------------------------------------------
       //  Diagnose.
@@ -433,6 +441,52 @@ public class PEG
 
 
 
+  //=====================================================================
+  //
+  //  Compute first characters.
+  //
+  //---------------------------------------------------------------------
+  //
+  //  Computes the 'first' set for all expressions.
+  //  For terminals it is obtained directly from the terminal.
+  //  For other expressions it is computed by iteration to a fixpoint.
+  //  The sets can only grow, so the iteration stops when
+  //  their total size does not change.
+  //  The FirstVisitor is used for the iteration step.
+  //
+  //=====================================================================
+
+  private void firstChars()
+    {
+      FirstVisitor firstVisitor = new FirstVisitor();
+
+      for (Expr e: terms)
+        e.accept(firstVisitor);
+
+      int s = -1;  // Total size after last step
+
+      while(true)
+      {
+        for (Expr e: refs)
+          e.accept(firstVisitor);
+        for (Expr e: subs)
+          e.accept(firstVisitor);
+        for (Expr e: rules)
+          e.accept(firstVisitor);
+
+        int size = 0;
+        for (Expr e: rules)
+          size += e.first.cardinality();
+        for (Expr e: subs)
+          size += e.first.cardinality();
+
+        if (size==s) break;
+        s = size;
+      }
+    }
+
+
+
   //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
   //
   //  ListVisitor - makes lists of expressions
@@ -475,6 +529,9 @@ public class PEG
     public void visit(Expr.Not expr)
       { doUnary(expr, expr.expr); }
 
+    public void visit(Expr.Atomic expr)
+      { doUnary(expr, expr.expr); }
+
     public void visit(Expr.Plus expr)
       { doUnary(expr, expr.expr); }
 
@@ -546,6 +603,8 @@ public class PEG
     public void visit(Expr.Rule r)
       {
         StringBuilder sb = new StringBuilder();
+        if (r.isTransient)
+          sb.append("transient ");
         sb.append(r.name + " ");
 
         sb.append("= ");
@@ -610,6 +669,12 @@ public class PEG
         expr.asString = "!" + enclose(expr.expr,3);
       }
 
+    public void visit(Expr.Atomic expr)
+      {
+        expr.expr.accept(this);
+        expr.asString = "@" + enclose(expr.expr,3);
+      }
+
     public void visit(Expr.Plus expr)
       {
         expr.expr.accept(this);
@@ -698,6 +763,12 @@ public class PEG
         if (alias!=null) expr.expr = alias;
       }
 
+    public void visit(Expr.Atomic expr)
+      {
+        Expr alias = alias(expr.expr);
+        if (alias!=null) expr.expr = alias;
+      }
+
     public void visit(Expr.Plus expr)
       {
         Expr alias = alias(expr.expr);
@@ -811,6 +882,14 @@ public class PEG
         if (e.fal) expr.nul = true;
       }
 
+    public void visit(Expr.Atomic expr)
+      {
+        Expr e = expr.expr;
+        if (e.nul) expr.nul = true;
+        if (e.adv) expr.adv = true;
+        if (e.fal) expr.fal = true;
+      }
+
     public void visit(Expr.Plus expr)
       {
         Expr e = expr.expr;
@@ -961,6 +1040,12 @@ public class PEG
           expr.WF = true;
       }
 
+    public void visit(Expr.Atomic expr)
+      {
+        if (expr.expr.WF)
+          expr.WF = true;
+      }
+
     public void visit(Expr.Plus expr)
       {
         if (expr.expr.WF && !expr.expr.nul)
@@ -994,5 +1079,86 @@ public class PEG
     public void visit(Expr.Ref expr)
       { expr.WF = expr.rule.WF; }
   }
-}
 
+
+
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+  //
+  //  FirstVisitor - computes first characters
+  //
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+  //-------------------------------------------------------------------
+  //  Each visit adds to 'first' the sets of subexpressions that
+  //  may supply the first character. Predicates do not consume
+  //  anything and have empty sets.
+  //  The visitor does not climb down the parse tree.
+  //-------------------------------------------------------------------
+
+  class FirstVisitor extends mouse.peg.Visitor
+  {
+    public void visit(Expr.Rule expr)
+      {
+        for (Expr e: expr.rhs)
+          expr.first.or(e.first);
+      }
+
+    public void visit(Expr.Choice expr)
+      {
+        for (Expr e: expr.expr)
+          expr.first.or(e.first);
+      }
+
+    public void visit(Expr.Sequence expr)
+      {
+        for (Expr e: expr.expr)
+        {
+          expr.first.or(e.first);
+          if (!e.nul) break;
+        }
+      }
+
+    public void visit(Expr.Plus expr)
+      { expr.first.or(expr.expr.first); }
+
+    public void visit(Expr.Star expr)
+      { expr.first.or(expr.expr.first); }
+
+    public void visit(Expr.Query expr)
+      { expr.first.or(expr.expr.first); }
+
+    public void visit(Expr.Atomic expr)
+      { expr.first.or(expr.expr.first); }
+
+    public void visit(Expr.PlusPlus expr)
+      {
+        expr.first.or(expr.expr1.first);
+        expr.first.or(expr.expr2.first);
+      }
+
+    public void visit(Expr.StarPlus expr)
+      {
+        expr.first.or(expr.expr1.first);
+        expr.first.or(expr.expr2.first);
+      }
+
+    public void visit(Expr.Ref expr)
+      { expr.first.or(expr.rule.first); }
+
+    public void visit(Expr.StringLit expr)
+      { expr.first.set(expr.s.charAt(0)); }
+
+    public void visit(Expr.Range expr)
+      { expr.first.set(expr.a,expr.z+1); }
+
+    public void visit(Expr.CharClass expr)
+      {
+        if (expr.hat)
+          expr.first.set(0,Character.MAX_VALUE+1);
+        for (int i=0;i<expr.s.length();i++)
+          expr.first.set(expr.s.charAt(i),!expr.hat);
+      }
+
+    public void visit(Expr.Any expr)
+      { expr.first.set(0,Character.MAX_VALUE+1); }
+  }
+}
@@ -75,7 +75,7 @@ public class Parser extends mouse.runtime.ParserBase
     }
   
   //=====================================================================
-  //  Rule = Name EQUAL RuleRhs DiagName? SEMI {Rule} ~{Error} ;
+  //  Rule = TRANSIENT? Name EQUAL RuleRhs DiagName? SEMI {Rule} ~{Error} ;
   //=====================================================================
   private boolean Rule()
     {
@@ -87,11 +87,12 @@ public class Parser extends mouse.runtime.ParserBase
     }
   
   //-------------------------------------------------------------------
-  //  Rule_0 = Name EQUAL RuleRhs DiagName? SEMI
+  //  Rule_0 = TRANSIENT? Name EQUAL RuleRhs DiagName? SEMI
   //-------------------------------------------------------------------
   private boolean Rule_0()
     {
       begin("");
+      TRANSIENT();
       if (!Name()) return rejectInner();
       if (!EQUAL()) return rejectInner();
       if (!RuleRhs()) return rejectInner();
@@ -184,17 +185,28 @@ public class Parser extends mouse.runtime.ParserBase
     }
   
   //=====================================================================
-  //  Sequence = Prefixed+ {Sequence} ;
+  //  Sequence = (Prefixed / CUT)+ {Sequence} ;
   //=====================================================================
   private boolean Sequence()
     {
       begin("Sequence");
-      if (!Prefixed()) return reject();
-      while (Prefixed());
+      if (!Sequence_0()) return reject();
+      while (Sequence_0());
       sem.Sequence();
       return accept();
     }
   
+  //-------------------------------------------------------------------
+  //  Sequence_0 = Prefixed / CUT
+  //-------------------------------------------------------------------
+  private boolean Sequence_0()
+    {
+      begin("");
+      if (Prefixed()) return acceptInner();
+      if (CUT()) return acceptInner();
+      return rejectInner();
+    }
+  
   //=====================================================================
   //  Prefixed = PREFIX? Suffixed {Prefixed} ;
   //=====================================================================
@@ -515,12 +527,12 @@ public class Parser extends mouse.runtime.ParserBase
     }
   
   //=====================================================================
-  //  PREFIX = [&!] Space <& or !> ;
+  //  PREFIX = [&!@] Space <& or ! or @> ;
   //=====================================================================
   private boolean PREFIX()
     {
-      begin("PREFIX","& or !");
-      if (!nextIn("&!")) return reject();
+      begin("PREFIX","& or ! or @");
+      if (!nextIn("&!@")) return reject();
       Space();
       return accept();
     }
@@ -549,6 +561,18 @@ public class Parser extends mouse.runtime.ParserBase
       return accept();
     }
   
+  //=====================================================================
+  //  CUT = "^" !"[" Space <^> ;
+  //=====================================================================
+  private boolean CUT()
+    {
+      begin("CUT","^");
+      if (!next('^')) return reject();
+      if (!aheadNot('[')) return reject();
+      Space();
+      return accept();
+    }
+  
   //=====================================================================
   //  EQUAL = "=" Space <=> ;
   //=====================================================================
@@ -659,6 +683,39 @@ public class Parser extends mouse.runtime.ParserBase
       return accept();
     }
   
+  //=====================================================================
+  //  TRANSIENT = "transient" !(Letter / Digit) Space &Name <transient> ;
+  //=====================================================================
+  private boolean TRANSIENT()
+    {
+      begin("TRANSIENT","transient");
+      if (!next("transient")) return reject();
+      if (!TRANSIENT_0()) return reject();
+      Space();
+      if (!TRANSIENT_1()) return reject();
+      return accept();
+    }
+  
+  //-------------------------------------------------------------------
+  //  TRANSIENT_0 = !(Letter / Digit)
+  //-------------------------------------------------------------------
+  private boolean TRANSIENT_0()
+    {
+      begin("","not Letter / Digit");
+      if (Name_0()) return rejectNot();
+      return acceptNot();
+    }
+  
+  //-------------------------------------------------------------------
+  //  TRANSIENT_1 = &Name
+  //-------------------------------------------------------------------
+  private boolean TRANSIENT_1()
+    {
+      begin("","Name");
+      if (!Name()) return rejectAnd();
+      return acceptAnd();
+    }
+  
   //=====================================================================
   //  Space = ([ \r\n\t] / Comment)* {Space} ;
   //=====================================================================
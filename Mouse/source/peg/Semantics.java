@@ -26,6 +26,10 @@
 //   Version 1.4
 //    110919 Modified 'CharClass' to handle enlarged syntax.
 //    110920 Modified 'Suffixed' to create 'PlusPlus' and 'StarPlus' objects.
+//   Version 1.7
+//    261017 Modified 'Rule' to accept optional 'transient' in front.
+//    261017 Modified 'Sequence' to create 'Cut' objects.
+//    261017 Modified 'Prefixed' to create 'Atomic' objects.
 //
 //=========================================================================
 
@@ -102,19 +106,23 @@ class Semantics extends mouse.runtime.SemanticsBase
     }
 
   //-------------------------------------------------------------------
-  //  Rule = Name EQUAL RuleRhs DiagName? SEMI
-  //           0    1      2        3     4(3)
+  //  Rule = TRANSIENT? Name EQUAL RuleRhs DiagName? SEMI
+  //                     0    1      2        3     4(3)
+  //  (all positions are shifted by 1 if TRANSIENT is present)
   //-------------------------------------------------------------------
   void Rule()
     {
-      String ruleName = stringValue(0);
+      // Name is preceded by TRANSIENT if the rule is transient
+      int n = rhs(0).isA("TRANSIENT")? 1 : 0;
+
+      String ruleName = stringValue(n);
 
       String diagName = null;
-      if (rhsSize()==5)
-        diagName = stringValue(3);
+      if (rhsSize()==n+5)
+        diagName = stringValue(n+3);
 
       // RuleRhs returns Expr.Rule object without name and diag name
-      Expr.Rule temp = ruleValue(2);
+      Expr.Rule temp = ruleValue(n+2);
 
       // Fill default action names
       if (temp.rhs.length==1)
@@ -136,7 +144,9 @@ class Semantics extends mouse.runtime.SemanticsBase
       }
 
       // Make new object because components should be final
-      lhs().put(new Expr.Rule(ruleName,diagName,temp.rhs,temp.onSucc,temp.onFail));
+      Expr.Rule rule = new Expr.Rule(ruleName,diagName,temp.rhs,temp.onSucc,temp.onFail);
+      rule.isTransient = n==1;
+      lhs().put(rule);
     }
 
   //-------------------------------------------------------------------
@@ -194,23 +204,23 @@ class Semantics extends mouse.runtime.SemanticsBase
     }
 
   //-------------------------------------------------------------------
-  //  Sequence = Prefixed+
-  //               0,1,..
+  //  Sequence = (Prefixed / CUT)+
+  //                  0,1,..
   //-------------------------------------------------------------------
   void Sequence()
     {
       int n = rhsSize();
 
+      Expr[] pref = new Expr[n];
+      for (int i=0;i<n;i++)
+        pref[i] = rhs(i).isA("CUT")? new Expr.Cut() : exprValue(i);
+
       if (n==1)
       {
-        lhs().put(rhs(0).get());
+        lhs().put(pref[0]);
         return;
       }
 
-      Expr[] pref = new Expr[n];
-      for (int i=0;i<n;i++)
-        pref[i] = exprValue(i);
-
       lhs().put(new Expr.Sequence(pref));
     }
 
@@ -229,8 +239,18 @@ class Semantics extends mouse.runtime.SemanticsBase
       Expr arg = exprValue(1);
       boolean and = rhs(0).charAt(0)=='&';
 
+      // Atomic: '@' on a predicate or on Atomic has no effect
+      if (rhs(0).charAt(0)=='@')
+      {
+        if (arg instanceof Expr.And || arg instanceof Expr.Not
+            || arg instanceof Expr.Atomic)
+          lhs().put(arg);
+        else
+          lhs().put(new Expr.Atomic(arg));
+      }
+
       // If nested predicate: reduce to single one
-      if (arg instanceof Expr.And)
+      else if (arg instanceof Expr.And)
       {
         if (and)
           lhs().put(arg);
@@ -22,6 +22,9 @@
 //    090701 License changed by the author to Apache v.2.
 //   Version 1.4
 //    110920 Added subclasses 'PlusPlus' and 'StarPlus'.
+//   Version 1.7
+//    261017 Added subclass 'Cut'.
+//    261017 Added subclass 'Atomic'.
 //
 //=========================================================================
 
@@ -47,6 +50,7 @@ public class Visitor
   public void visit(Expr.Sequence expr) {}
   public void visit(Expr.And expr) {}
   public void visit(Expr.Not expr) {}
+  public void visit(Expr.Atomic expr) {}
   public void visit(Expr.Plus expr) {}
   public void visit(Expr.Star expr) {}
   public void visit(Expr.Query expr) {}
@@ -57,5 +61,6 @@ public class Visitor
   public void visit(Expr.CharClass expr) {}
   public void visit(Expr.Range expr) {}
   public void visit(Expr.Any expr) {}
+  public void visit(Expr.Cut expr) {}
 }
 
@@ -0,0 +1,144 @@
+//=========================================================================
+//
+//  Part of PEG parser generator Mouse.
+//
+//  Copyright (C) 2026 by the Mouse contributors.
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+//-------------------------------------------------------------------------
+//
+//  Change log
+//  Version 1.7
+//   261017 Created.
+//
+//=========================================================================
+
+package mouse.runtime;
+
+import java.util.Arrays;
+
+
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+//
+//  LineIndex
+//
+//-------------------------------------------------------------------------
+//
+//  Start positions of all lines in a text, for converting a position
+//  to line and column number. The text is scanned once, when the
+//  index is constructed; each conversion is then a binary search.
+//  Lines and columns are numbered starting with 1. A newline belongs
+//  to the line it ends, as in 'SourceFile.where'.
+//
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+public class LineIndex
+{
+  //-------------------------------------------------------------------
+  //  'start[k]' is the position of first character of line k+1.
+  //  'count' is the number of lines.
+  //-------------------------------------------------------------------
+  private int[] start = new int[64];
+  private int count = 0;
+
+  //=====================================================================
+  //
+  //  Constructors.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Index of the string 'text'.
+  //-------------------------------------------------------------------
+  public LineIndex(final String text)
+    {
+      add(0);
+      int nl = text.indexOf('\n');
+      while (nl>=0)
+      {
+        add(nl+1);
+        nl = text.indexOf('\n',nl+1);
+      }
+    }
+
+  //-------------------------------------------------------------------
+  //  Index of text from 'src'.
+  //-------------------------------------------------------------------
+  public LineIndex(final Source src)
+    {
+      add(0);
+      int end = src.end();
+      for (int p=0;p<end;p++)
+        if (src.at(p)=='\n') add(p+1);
+    }
+
+  //=====================================================================
+  //
+  //  Access.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Number of lines.
+  //-------------------------------------------------------------------
+  public int lines()
+    { return count; }
+
+  //-------------------------------------------------------------------
+  //  Line containing position p.
+  //-------------------------------------------------------------------
+  public int line(int p)
+    {
+      int lo = 0;                   // start[lo] <= p
+      int hi = count;               // start[hi] > p, or hi = count
+      while (hi-lo>1)
+      {
+        int mid = (lo+hi)>>>1;
+        if (start[mid]<=p) lo = mid;
+        else hi = mid;
+      }
+      return lo+1;
+    }
+
+  //-------------------------------------------------------------------
+  //  Column of position p.
+  //-------------------------------------------------------------------
+  public int column(int p)
+    { return p - start[line(p)-1] + 1; }
+
+  //-------------------------------------------------------------------
+  //  Position of first character of line n.
+  //-------------------------------------------------------------------
+  public int lineStart(int n)
+    { return start[n-1]; }
+
+  //-------------------------------------------------------------------
+  //  Describe position p as in 'SourceFile.where'.
+  //-------------------------------------------------------------------
+  public String where(int p)
+    {
+      int ln = line(p);
+      return "line " + ln + " col. " + (p - start[ln-1] + 1);
+    }
+
+  //=====================================================================
+  //
+  //  Add start of a line.
+  //
+  //=====================================================================
+  private void add(int p)
+    {
+      if (count==start.length)
+        start = Arrays.copyOf(start,2*count);
+      start[count++] = p;
+    }
+}
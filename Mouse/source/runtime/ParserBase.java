@@ -45,12 +45,54 @@
 //          line when error info is absent.
 //  Version 1.6
 //   120130 rhsText: return empty string for empty range.
+//  Version 1.7
+//   261017 Made 'listErr' and 'toPrint' static members of ParserBase
+//          to be shared with ParserRecognizer.
+//   261017 Added 'nextChar' and 'expected' for dispatch on first character.
+//   261017 Added methods for [s] and ^[s] with table of characters.
+//   261017 Added methods for terminals identified by number,
+//          with diagnostic texts in 'terms'.
+//   261017 Match "s" with 'Source.matches' instead of comparing
+//          with a substring of the text.
+//   261017 Added error mode FARTHEST_ERROR with one farthest failure
+//          for the parser instead of error info in each Phrase.
+//          Vector 'errTxt' of Phrase is created only when needed.
+//   261017 Added 'initFast' for parsing without error info.
+//   261017 Implemented methods 'line' and 'column' of Phrase
+//          using LineIndex of the source text.
+//   261017 Parse from SourceStream: read more text at end of buffer,
+//          commit each item of the start rule. 'initFast' returns
+//          false for a stream, which can not be parsed twice.
+//   261017 Pass items of the start rule to 'item' of semantics
+//          on commit; commit also if 'items' is set (option -i).
+//   261017 Track in Phrase how far it examined the text ('reach').
+//   261017 Keep the bottom Phrase of parse stack for the next parse.
+//   261017 Added arena mode: Phrases not needed any more are kept
+//          and used again instead of new ones.
+//          Right-hand side and error texts of Phrase are kept
+//          in arrays instead of Vectors.
+//   261017 Array for right-hand side of Phrase allocated when needed.
+//   261017 No Phrases for terminals if 'noTerms' is set (option -t).
+//   261017 Added 'setTransient': the right-hand side of a transient
+//          rule is not built.
+//   261017 Added 'cut' and 'afterCut' for cut '^' in a sequence.
+//   261017 Added 'acceptAtomic' for '@e': the Phrase is attached
+//          as one element, without its right-hand side and,
+//          unless it may be reused, without its error info.
+//   261017 Added 'skipTo' and 'nextUntil' for loops over single
+//          characters that end with a terminal.
+//   261017 'skipTo' and 'nextUntil' add one terminal for each
+//          character, as the loops do, unless terminals are
+//          not recorded.
+//   261017 'line' and 'column' of Phrase ask the source if it
+//          implements SourceLines; LineIndex is built only if not.
 //
 //=========================================================================
 
 package mouse.runtime;
 
 import mouse.runtime.Source;
+import java.util.Arrays;
 import java.util.Vector;
 
 
@@ -69,21 +111,105 @@ public class ParserBase implements mouse.runtime.CurrentRule
   Source source;                    // Source of text to parse
   int endpos;                       // Position after the end of text
   int pos;                          // Current position in the text
+  SourceLines lines;                // Line numbers, found when needed
+  SourceStream stream;              // Source if it is a stream, or null
 
   //-------------------------------------------------------------------
   //  Semantics (base)
   //-------------------------------------------------------------------
   protected mouse.runtime.SemanticsBase sem;
 
+  //-------------------------------------------------------------------
+  //  Pass items of the start rule to semantics? Set by the parser
+  //  generated with option -i.
+  //-------------------------------------------------------------------
+  protected boolean items = false;
+
+  //-------------------------------------------------------------------
+  //  Record terminals only by extending the current Phrase, without
+  //  a Phrase of their own? Set by the parser generated with option -t.
+  //-------------------------------------------------------------------
+  protected boolean noTerms = false;
+
   //-------------------------------------------------------------------
   //  Trace string.
   //-------------------------------------------------------------------
   protected String trace = "";
 
   //-------------------------------------------------------------------
-  //  Current phrase (top of parse stack).
+  //  Current phrase (top of parse stack), and the dummy Phrase
+  //  at the bottom of the stack, kept to be used again.
   //-------------------------------------------------------------------
   Phrase current = null;
+  private Phrase bottom = null;
+
+  //-------------------------------------------------------------------
+  //  Empty right-hand side, shared by Phrases that have none.
+  //-------------------------------------------------------------------
+  static final Phrase[] noRhs = new Phrase[0];
+
+  //-------------------------------------------------------------------
+  //  Diagnostic texts of terminals, indexed by terminal number.
+  //  Set by the generated parser. 'termsNot' are the texts for
+  //  failing negation, made when first needed.
+  //-------------------------------------------------------------------
+  protected String[] terms = {};
+  private String[] termsNot = null;
+
+  //-------------------------------------------------------------------
+  //  Values of 'mode' in setErrors:
+  //  - PHRASE_ERRORS: each Phrase keeps the farthest failure found
+  //    in its processing, merged into its parent when it ends;
+  //  - FARTHEST_ERROR: the parser keeps only the farthest failure;
+  //    Phrase keeps the state of it at the time it started.
+  //  The final error message is the same. Memoized parsers keep
+  //  error info in each Phrase for results they reuse, so they use
+  //  FARTHEST_ERROR only when memoization is off.
+  //-------------------------------------------------------------------
+  public static final int PHRASE_ERRORS = 0;
+  public static final int FARTHEST_ERROR = 1;
+
+  int errMode = PHRASE_ERRORS;      // Mode set by setErrors
+  boolean farthest = false;         // FARTHEST_ERROR used in this parse
+  boolean noErrors = false;         // No error info in this parse
+
+  //-------------------------------------------------------------------
+  //  Farthest failure, in mode FARTHEST_ERROR.
+  //  - 'farPos' is its position, or -1 if there was none.
+  //  - 'farTxt' from 'farFrom' to 'farCount'-1 identify expressions
+  //     that failed at 'farPos'. Texts below 'farFrom' are those
+  //     for earlier positions that may be restored after a predicate.
+  //-------------------------------------------------------------------
+  int farPos = -1;
+  String[] farTxt = new String[16];
+  int farFrom = 0;
+  int farCount = 0;
+
+  //-------------------------------------------------------------------
+  //  Arena mode, set by setArena. Phrases that can not be used
+  //  any more are kept in 'free' and used again instead of new ones:
+  //  a Phrase that failed, a predicate, an inner expression after
+  //  its right-hand side moved to the parent, and the right-hand side
+  //  of a rule after its semantic action. Their lists are kept too.
+  //  Semantic actions must then not keep references to Phrases,
+  //  only their values, texts and positions. Memoized parsers keep
+  //  Phrases for reuse, so they use the arena only when memoization
+  //  is off. 'free' is kept for the next parse.
+  //-------------------------------------------------------------------
+  boolean arenaMode = false;        // Mode set by setArena
+  boolean arena = false;            // Arena used in this parse
+  private Phrase[] free = new Phrase[64];
+  private int freeCount = 0;
+
+  //-------------------------------------------------------------------
+  //  Did the inner expression finished last pass a cut?
+  //-------------------------------------------------------------------
+  boolean passedCut = false;
+
+  //-------------------------------------------------------------------
+  //  Are accepted Phrases saved for reuse? Set by ParserMemo.
+  //-------------------------------------------------------------------
+  boolean saving = false;
 
   //-------------------------------------------------------------------
   //  Constructor
@@ -99,9 +225,54 @@ public class ParserBase implements mouse.runtime.CurrentRule
       source = src;
       pos = 0;
       endpos = source.end();
-      current = new Phrase("","",0); // Dummy bottom of parse stack
+      lines = null;
+      stream = src instanceof SourceStream? (SourceStream)src : null;
+      farthest = errMode==FARTHEST_ERROR;
+      noErrors = false;
+      arena = arenaMode;
+      saving = false;
+      farPos = -1;
+      farFrom = 0;
+      farCount = 0;
+      if (bottom==null)
+        bottom = new Phrase("","",0);  // Dummy bottom of parse stack
+      else
+        bottom.reset();
+      current = bottom;
     }
 
+  //-------------------------------------------------------------------
+  //  Initialize parsing without error info.
+  //  Used for the first pass of a parser generated with option -f;
+  //  the farthest failure is then never registered.
+  //  Returns false, without initializing, if 'src' is a stream
+  //  that can not be parsed again.
+  //-------------------------------------------------------------------
+  protected boolean initFast(Source src)
+    {
+      if (src instanceof SourceStream) return false;
+      init(src);
+      farthest = true;
+      noErrors = true;
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Set error mode.
+  //-------------------------------------------------------------------
+  public void setErrors(int mode)
+    {
+      if (mode!=PHRASE_ERRORS && mode!=FARTHEST_ERROR)
+        throw new Error("mode=" + mode + " is not a valid error mode");
+      errMode = mode;
+    }
+
+  //-------------------------------------------------------------------
+  //  Set arena mode.
+  //-------------------------------------------------------------------
+  public void setArena(boolean on)
+    { arenaMode = on; }
+
   //-------------------------------------------------------------------
   //  Implementation of Parser interface CurrentRule
   //-------------------------------------------------------------------
@@ -109,10 +280,13 @@ public class ParserBase implements mouse.runtime.CurrentRule
     { return current; }
 
   public Phrase rhs(int i)
-    { return current.rhs.elementAt(i); }
+    {
+      if (i>=current.rhsSize) throw new ArrayIndexOutOfBoundsException(i);
+      return current.rhs[i];
+    }
 
   public int rhsSize()
-    { return current.rhs.size(); }
+    { return current.rhsSize; }
 
   public String rhsText(int i,int j)
     {
@@ -120,6 +294,38 @@ public class ParserBase implements mouse.runtime.CurrentRule
       return source.at(rhs(i).start,rhs(j-1).end);
     }
 
+  //-------------------------------------------------------------------
+  //  Line numbers of source text, found when first needed:
+  //  the source itself if it provides them, otherwise a LineIndex
+  //  of its text.
+  //-------------------------------------------------------------------
+  SourceLines lines()
+    {
+      if (lines!=null) return lines;
+      if (source instanceof SourceLines)
+        lines = (SourceLines)source;
+      else
+        lines = new Lines(new LineIndex(source));
+      return lines;
+    }
+
+  //-------------------------------------------------------------------
+  //  Line numbers from a LineIndex.
+  //-------------------------------------------------------------------
+  static class Lines implements SourceLines
+  {
+    final LineIndex index;
+
+    Lines(final LineIndex index)
+      { this.index = index; }
+
+    public long line(int p)
+      { return index.line(p); }
+
+    public long column(int p)
+      { return index.column(p); }
+  }
+
   //-------------------------------------------------------------------
   //  Set trace
   //-------------------------------------------------------------------
@@ -134,8 +340,9 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean failure()
     {
-      if (current.errPos>=0)
-        System.out.println(current.errMsg());
+      String msg = current.errMsg();
+      if (msg.length()>0)
+        System.out.println(msg);
       return false;
     }
 
@@ -149,18 +356,45 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected void begin(final String name)
     {
-      Phrase p = new Phrase(name,name,pos);
+      Phrase p = phrase(name,name,pos);
+      if (name.isEmpty()) p.lean = current.lean;
       p.parent = current;
       current = p;
+      if (farthest) save(p);
     }
 
   protected void begin(final String name,final String diag)
     {
-      Phrase p = new Phrase(name,diag,pos);
+      Phrase p = phrase(name,diag,pos);
+      if (name.isEmpty()) p.lean = current.lean;
       p.parent = current;
       current = p;
+      if (farthest) save(p);
     }
 
+  //-------------------------------------------------------------------
+  //  Make the current Rule transient: its text is not split into
+  //  Phrases for the right-hand side. Called after 'begin' or 'saved'
+  //  by the parser for a Rule marked 'transient' in the grammar.
+  //  The semantic action of such Rule can use 'lhs', but not 'rhs'.
+  //  Subexpressions of the Rule inherit this from it; Rules it calls
+  //  do not, but their Phrases are not attached to it.
+  //-------------------------------------------------------------------
+  protected void setTransient()
+    { current.lean = true; }
+
+  //-------------------------------------------------------------------
+  //  Cut '^' in a sequence: the sequence passed it.
+  //  Once it did, the Choice or Rule that called the sequence
+  //  does not try its next alternatives: it asks 'afterCut'
+  //  when the sequence failed, or its boolean action said no.
+  //-------------------------------------------------------------------
+  protected void cut()
+    { current.cut = true; }
+
+  protected boolean afterCut()
+    { return passedCut; }
+
   //-------------------------------------------------------------------
   //  Accept Rule
   //  Note: 'upgrade error info' is applied when rule such as
@@ -173,13 +407,22 @@ public class ParserBase implements mouse.runtime.CurrentRule
   protected boolean accept()
     {
       Phrase p = pop();                // Pop p from compile stack
-      p.rhs = null;                    // Remove right-hand side of p
-      if (p.errPos==p.start)           // Upgrade error info of p
+      dropRhs(p);                      // Remove right-hand side of p
+      if (farthest)                    // Upgrade farthest failure
+        upgrade(p);
+      else if (p.errPos==p.start)      // Upgrade error info of p
         p.errSet(p.diag,p.start);
       p.success = true;                // Indicate p successful
       current.end = pos;               // Update end of parent
-      current.rhs.add(p);              // Attach p to rhs of parent
-      current.errMerge(p);             // Merge error info with parent
+      if (current.lean)                // Transient parent: drop p
+        release(p);
+      else
+        current.rhsAdd(p);             // Attach p to rhs of parent
+      if (!farthest)
+        current.errMerge(p);           // Merge error info with parent
+      if ((items || stream!=null)
+          && current.parent!=null && current.parent.parent==null)
+        commit();                      // Item of start rule: commit
       return true;
     }
 
@@ -190,9 +433,48 @@ public class ParserBase implements mouse.runtime.CurrentRule
     {
       Phrase p = pop();                // Pop p from compile stack
       p.success = true;                // Indicate p successful
+      passedCut = p.cut;               // Tell if p passed a cut
       current.end = pos;               // Update end of parent
-      current.rhs.addAll(p.rhs);       // Add rhs of p to rhs of parent
-      current.errMerge(p);             // Merge error info with parent
+      current.rhsAddAll(p);            // Add rhs of p to rhs of parent
+      if (!farthest)
+        current.errMerge(p);           // Merge error info with parent
+      if (arena)                       // p is not needed any more
+      {
+        p.rhsClear();
+        release(p);
+      }
+      if ((items || stream!=null)
+          && current.parent!=null && current.parent.parent==null)
+        commit();                      // Item of start rule: commit
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Accept Atomic: expression '@e'.
+  //  Its Phrase was made transient by 'setTransient', so it has only
+  //  the text of 'e'. It is attached to the parent as one element,
+  //  like a terminal. Its error info is merged with that of the parent
+  //  and then dropped, unless the Phrase may be reused.
+  //-------------------------------------------------------------------
+  protected boolean acceptAtomic()
+    {
+      Phrase p = pop();                // Pop p from compile stack
+      p.success = true;                // Indicate p successful
+      p.lean = false;                  // p is complete
+      passedCut = p.cut;               // Tell if p passed a cut
+      current.end = pos;               // Update end of parent
+      if (current.lean)                // Transient parent: drop p
+        release(p);
+      else
+        current.rhsAdd(p);             // Attach p to rhs of parent
+      if (!farthest)
+      {
+        current.errMerge(p);           // Merge error info with parent
+        if (!saving) p.errFree();      // .. and forget it in p
+      }
+      if ((items || stream!=null)
+          && current.parent!=null && current.parent.parent==null)
+        commit();                      // Item of start rule: commit
       return true;
     }
 
@@ -204,10 +486,14 @@ public class ParserBase implements mouse.runtime.CurrentRule
     {
       Phrase p = pop();                // Pop p from compile stack
       p.end = p.start;                 // Reset end of P
-      p.rhs = null;                    // Remove right-hand side of p
-      p.errClear();                    // Remove error info from p
+      dropRhs(p);                      // Remove right-hand side of p
+      if (farthest)                    // Forget failures in p
+        restore(p);
+      else
+        p.errClear();                  // Remove error info from p
       p.success = true;                // Indicate p successful
       pos = p.start;                   // Backtrack to start of p
+      release(p);                      // p is not needed any more
       return true;
     }
 
@@ -218,9 +504,13 @@ public class ParserBase implements mouse.runtime.CurrentRule
   protected boolean acceptNot()
     {
       Phrase p = pop();                // Pop p from compile stack
-      p.rhs = null;                    // Remove right-hand side of p
-      p.errClear();                    // Remove error info from p
+      dropRhs(p);                      // Remove right-hand side of p
+      if (farthest)                    // Forget failures in p
+        restore(p);
+      else
+        p.errClear();                  // Remove error info from p
       p.success = true;                // Indicate p successful
+      release(p);                      // p is not needed any more
       return true;
     }
 
@@ -237,12 +527,16 @@ public class ParserBase implements mouse.runtime.CurrentRule
     {
       Phrase p = pop();                // Pop p from compile stack
       p.end = p.start;                 // Reset end of p
-      p.rhs = null;                    // Remove right-hand side of p
-      if (p.errPos==p.start)           // Upgrade error info of p
+      dropRhs(p);                      // Remove right-hand side of p
+      if (farthest)                    // Upgrade farthest failure
+        upgrade(p);
+      else if (p.errPos==p.start)      // Upgrade error info of p
         p.errSet(p.diag,p.start);
       p.success = false;               // Indicate p failed
-      current.errMerge(p);             // Merge error info with parent
+      if (!farthest)
+        current.errMerge(p);           // Merge error info with parent
       pos = p.start;                   // Backtrack to start of p
+      release(p);                      // p is not needed any more
       return false;
     }
 
@@ -254,10 +548,17 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean boolReject()
     {
+      reached(current.end);            // Text of action was examined
       pos = current.start;             // Backtrack to start
       current.end = pos;               // Reset end
-      current.rhs.clear();             // Clear right-hand side
-      current.errSet(current.diag,pos);// Register failure
+      clearRhs(current);               // Clear right-hand side
+      if (farthest)                    // Register failure
+      {
+        restore(current);
+        farFail(current.diag);
+      }
+      else
+        current.errSet(current.diag,pos);
       return false;
     }
 
@@ -268,10 +569,13 @@ public class ParserBase implements mouse.runtime.CurrentRule
     {
       Phrase p = pop();                // Pop p from compile stack
       p.end = p.start;                 // Reset end of p
-      p.rhs = null;                    // Remove right-hand side of p
+      dropRhs(p);                      // Remove right-hand side of p
       p.success = false;               // Indicate p failed
-      current.errMerge(p);             // Merge error info with parent
+      passedCut = p.cut;               // Tell if p passed a cut
+      if (!farthest)
+        current.errMerge(p);           // Merge error info with parent
       pos = p.start;                   // Backtrack to start of p
+      release(p);                      // p is not needed any more
       return false;
     }
 
@@ -283,10 +587,17 @@ public class ParserBase implements mouse.runtime.CurrentRule
   protected boolean rejectAnd()
     {
       Phrase p = pop();                // Pop p from compile stack
-      p.rhs = null;                    // Remove right-hand side of p
-      p.errSet(p.diag,pos);            // Register 'xxx expected'
+      dropRhs(p);                      // Remove right-hand side of p
       p.success = false;               // Indicate p failed
+      if (farthest)                    // Register 'xxx expected'
+      {
+        restore(p);
+        release(p);                    // p is not needed any more
+        return farFail(p.diag);
+      }
+      p.errSet(p.diag,pos);            // Register 'xxx expected'
       current.errMerge(p);             // Merge error info with parent
+      release(p);                      // p is not needed any more
       return false;
     }
 
@@ -299,11 +610,18 @@ public class ParserBase implements mouse.runtime.CurrentRule
     {
       Phrase p = pop();                // Pop p from compile stack
       p.end = p.start;                 // Reset end of p
-      p.rhs = null;                    // Remove right-hand side of p
+      dropRhs(p);                      // Remove right-hand side of p
       pos = p.start;                   // Backtrack to start of p
-      p.errSet(p.diag,pos);            // Register 'xxx not expected'
       p.success = false;               // Indicate p failed
+      if (farthest)                    // Register 'xxx not expected'
+      {
+        restore(p);
+        release(p);                    // p is not needed any more
+        return farFail(p.diag);
+      }
+      p.errSet(p.diag,pos);            // Register 'xxx not expected'
       current.errMerge(p);             // Merge error info with parent
+      release(p);                      // p is not needed any more
       return false;
     }
 
@@ -313,7 +631,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean next(char ch)
     {
-      if (pos<endpos && source.at(pos)==ch) return consume(1);
+      if ((pos<endpos || more()) && source.at(pos)==ch) return consume(1);
       else return fail("'" + ch + "'");
     }
 
@@ -322,7 +640,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean nextNot(char ch)
     {
-      if (pos<endpos && source.at(pos)!=ch) return consume(1);
+      if ((pos<endpos || more()) && source.at(pos)!=ch) return consume(1);
       else return fail("not '" + ch + "'");
     }
 
@@ -331,7 +649,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean ahead(char ch)
     {
-      if (pos<endpos && source.at(pos)==ch) return true;
+      if ((pos<endpos || more()) && source.at(pos)==ch) return reached(pos+1);
       else return fail("'" + ch + "'");
     }
 
@@ -343,8 +661,8 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean aheadNot(char ch)
     {
-      if (pos<endpos && source.at(pos)==ch) return fail("not '" + ch + "'");
-      else return true;
+      if ((pos<endpos || more()) && source.at(pos)==ch) return fail("not '" + ch + "'");
+      else return reached(pos+1);
     }
 
 
@@ -353,8 +671,8 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean next(String s)
     {
-      int lg = s.length();
-      if (pos+lg<=endpos && source.at(pos,pos+lg).equals(s)) return consume(lg);
+      reached(pos+s.length());
+      if (source.matches(pos,s)) return consume(s.length());
       else return fail("'" + s + "'");
     }
 
@@ -363,8 +681,8 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean ahead(String s)
     {
-      int lg = s.length();
-      if (pos+lg<=endpos && source.at(pos,pos+lg).equals(s)) return true;
+      reached(pos+s.length());
+      if (source.matches(pos,s)) return true;
       else return fail("'" + s + "'");
     }
 
@@ -373,8 +691,8 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean aheadNot(String s)
     {
-      int lg = s.length();
-      if (pos+lg<=endpos && source.at(pos,pos+lg).equals(s)) return fail("not '" + s + "'");
+      reached(pos+s.length());
+      if (source.matches(pos,s)) return fail("not '" + s + "'");
       else return true;
     }
 
@@ -384,7 +702,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean nextIn(String s)
     {
-      if (pos<endpos && s.indexOf(source.at(pos))>=0) return consume(1);
+      if ((pos<endpos || more()) && s.indexOf(source.at(pos))>=0) return consume(1);
       else return fail("[" + s + "]");
     }
 
@@ -393,7 +711,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean nextNotIn(String s)
     {
-      if (pos<endpos && s.indexOf(source.at(pos))<0) return consume(1);
+      if ((pos<endpos || more()) && s.indexOf(source.at(pos))<0) return consume(1);
       else return fail("not [" + s + "]");
     }
 
@@ -402,7 +720,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean aheadIn(String s)
     {
-      if (pos<endpos && s.indexOf(source.at(pos))>=0) return true;
+      if ((pos<endpos || more()) && s.indexOf(source.at(pos))>=0) return reached(pos+1);
       else return fail("[" + s + "]");
     }
 
@@ -414,8 +732,8 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean aheadNotIn(String s)
     {
-      if (pos<endpos && s.indexOf(source.at(pos))>=0) return fail("not [" + s + "]");
-      else return true;
+      if ((pos<endpos || more()) && s.indexOf(source.at(pos))>=0) return fail("not [" + s + "]");
+      else return reached(pos+1);
     }
 
 
@@ -424,7 +742,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean nextIn(char a, char z)
     {
-      if (pos<endpos && source.at(pos)>=a && source.at(pos)<=z)
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
         return consume(1);
       else return fail("[" + a + "-" + z + "]");
     }
@@ -434,8 +752,8 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean aheadIn(char a, char z)
     {
-      if (pos<endpos && source.at(pos)>=a && source.at(pos)<=z)
-        return true;
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        return reached(pos+1);
       else return fail("[" + a + "-" + z + "]");
     }
 
@@ -444,9 +762,9 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean aheadNotIn(char a, char z)
     {
-      if (pos<endpos && source.at(pos)>=a && source.at(pos)<=z)
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
         return fail("not [" + a + "-" + z + "]");
-      else return true;
+      else return reached(pos+1);
     }
 
 
@@ -455,7 +773,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean next()
     {
-      if (pos<endpos) return consume(1);
+      if ((pos<endpos || more())) return consume(1);
       else return fail("any character");
     }
 
@@ -464,7 +782,7 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean ahead()
     {
-      if (pos<endpos) return true;
+      if ((pos<endpos || more())) return reached(pos+1);
       else return fail("any character");
     }
 
@@ -473,10 +791,295 @@ public class ParserBase implements mouse.runtime.CurrentRule
   //-------------------------------------------------------------------
   protected boolean aheadNot()
     {
-      if (pos<endpos) return fail("end of text");
+      if ((pos<endpos || more())) return fail("end of text");
+      else return reached(pos+1);
+    }
+
+
+  //=====================================================================
+  //
+  //  Terminals identified by number
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  The methods below are called by parsers generated by Mouse 1.7.
+  //  Argument 't' is the number of the terminal, used to find its
+  //  diagnostic text in 'terms' only if the terminal fails.
+  //
+  //  Execute expression 'c'
+  //-------------------------------------------------------------------
+  protected boolean next(char ch, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch) return consume(1);
+      else return fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ^'c'
+  //-------------------------------------------------------------------
+  protected boolean nextNot(char ch, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)!=ch) return consume(1);
+      else return fail(not(t));
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &'c', !^'c'
+  //-------------------------------------------------------------------
+  protected boolean ahead(char ch, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch) return reached(pos+1);
+      else return fail(terms[t]);
+    }
+
+  protected boolean aheadNotNot(char ch, int t)
+    { return ahead(ch,t); }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !'c', &^'c'
+  //-------------------------------------------------------------------
+  protected boolean aheadNot(char ch, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch) return fail(not(t));
+      else return reached(pos+1);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression "s"
+  //-------------------------------------------------------------------
+  protected boolean next(String s, int t)
+    {
+      reached(pos+s.length());
+      if (source.matches(pos,s)) return consume(s.length());
+      else return fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &"s"
+  //-------------------------------------------------------------------
+  protected boolean ahead(String s, int t)
+    {
+      reached(pos+s.length());
+      if (source.matches(pos,s)) return true;
+      else return fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !"s"
+  //-------------------------------------------------------------------
+  protected boolean aheadNot(String s, int t)
+    {
+      reached(pos+s.length());
+      if (source.matches(pos,s)) return fail(not(t));
       else return true;
     }
 
+  //-------------------------------------------------------------------
+  //  Execute expression [s] using table 'set' of its characters
+  //-------------------------------------------------------------------
+  protected boolean nextIn(final long[] set, int t)
+    {
+      if ((pos<endpos || more()) && in(set,source.at(pos))) return consume(1);
+      else return fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean nextNotIn(final long[] set, int t)
+    {
+      if ((pos<endpos || more()) && !in(set,source.at(pos))) return consume(1);
+      else return fail(not(t));
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &[s], !^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean aheadIn(final long[] set, int t)
+    {
+      if ((pos<endpos || more()) && in(set,source.at(pos))) return reached(pos+1);
+      else return fail(terms[t]);
+    }
+
+  protected boolean aheadNotNotIn(final long[] set, int t)
+    { return aheadIn(set,t); }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ![s], &^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean aheadNotIn(final long[] set, int t)
+    {
+      if ((pos<endpos || more()) && in(set,source.at(pos)))
+        return fail(not(t));
+      else return reached(pos+1);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression [a-z]
+  //-------------------------------------------------------------------
+  protected boolean nextIn(char a, char z, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        return consume(1);
+      else return fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &[a-z]
+  //-------------------------------------------------------------------
+  protected boolean aheadIn(char a, char z, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        return reached(pos+1);
+      else return fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ![a-z]
+  //-------------------------------------------------------------------
+  protected boolean aheadNotIn(char a, char z, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        return fail(not(t));
+      else return reached(pos+1);
+    }
+
+  //-------------------------------------------------------------------
+  //  Loops over single characters that end with a terminal.
+  //  Expression 'e' below is _ if 'set' is null, otherwise ^[s]
+  //  with table 'set' and number 'u'. The text consumed by 'e' is
+  //  scanned in one loop. The right-hand side gets one terminal
+  //  for each character, as from the loop in the generated parser.
+  //  Error info is also the same.
+  //
+  //  Execute expression (!"s" e)*
+  //-------------------------------------------------------------------
+  protected boolean skipTo(String s, int t, final long[] set, int u)
+    {
+      int start = pos;
+      int q = scan(s,null,set);
+      reached(q+s.length());
+      boolean hit = q<endpos && source.matches(q,s);
+      pos = start;
+      consumeEach(q-start);
+      fail(hit? not(t) : set==null? "any character" : not(u));
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression (![s] e)* using table 'stop' for [s]
+  //-------------------------------------------------------------------
+  protected boolean skipTo(final long[] stop, int t, final long[] set, int u)
+    {
+      int start = pos;
+      int q = scan(null,stop,set);
+      boolean hit = q<endpos && in(stop,source.at(q));
+      pos = start;
+      consumeEach(q-start);
+      fail(hit? not(t) : set==null? "any character" : not(u));
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression e*+ "s"
+  //-------------------------------------------------------------------
+  protected boolean nextUntil(String s, int t, final long[] set, int u)
+    {
+      int start = pos;
+      int q = scan(s,null,set);
+      reached(q+s.length());
+      if (q<endpos && source.matches(q,s))
+        return until(start,q,s.length(),t);
+      fail(terms[t]);
+      return fail(set==null? "any character" : not(u));
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression e*+ [s] using table 'stop' for [s]
+  //-------------------------------------------------------------------
+  protected boolean nextUntil(final long[] stop, int t, final long[] set, int u)
+    {
+      int start = pos;
+      int q = scan(null,stop,set);
+      if (q<endpos && in(stop,source.at(q)))
+        return until(start,q,1,t);
+      fail(terms[t]);
+      return fail(set==null? "any character" : not(u));
+    }
+
+  //-------------------------------------------------------------------
+  //  Loop e*+ "s" found "s" of length 'n' at 'q'. The loop
+  //  started at 'start'; 'pos' is 'q'. Register the failure of "s"
+  //  just before 'q', consume the text up to 'q', and then "s".
+  //-------------------------------------------------------------------
+  private boolean until(int start, int q, int n, int t)
+    {
+      if (q>start)
+      {
+        pos = q-1;
+        fail(terms[t]);
+        pos = start;
+        consumeEach(q-start);
+      }
+      return consume(n);
+    }
+
+  //-------------------------------------------------------------------
+  //  Advance 'pos' to the first position where "s" (or [s] given
+  //  by table 'stop') is found, or 'e' fails. Return that position.
+  //-------------------------------------------------------------------
+  private int scan(String s, final long[] stop, final long[] set)
+    {
+      char c = s==null? 0 : s.charAt(0);
+      while (pos<endpos || more())
+      {
+        char ch = source.at(pos);
+        if (s!=null? ch==c && source.matches(pos,s) : in(stop,ch))
+          break;
+        if (set!=null && in(set,ch)) break;
+        pos++;
+      }
+      return pos;
+    }
+
+  //-------------------------------------------------------------------
+  //  Text 'not ...' for terminal 't'
+  //-------------------------------------------------------------------
+  private String not(int t)
+    {
+      if (termsNot==null) termsNot = new String[terms.length];
+      if (termsNot[t]==null) termsNot[t] = "not " + terms[t];
+      return termsNot[t];
+    }
+
+
+  //-------------------------------------------------------------------
+  //  Get next character, or -1 at end of text (for dispatch)
+  //-------------------------------------------------------------------
+  protected int nextChar()
+    {
+      reached(pos+1);
+      return (pos<endpos || more())? source.at(pos) : -1;
+    }
+
+  //-------------------------------------------------------------------
+  //  Register failure of expression 'who' that was not called
+  //  because it can not start with the next character.
+  //-------------------------------------------------------------------
+  protected boolean expected(final String who)
+    { return fail(who); }
+
+
+  //-------------------------------------------------------------------
+  //  Is 'c' in the table 'set'? Bit 'c%64' of 'set[c/64]' is set
+  //  for each character 'c' in the set; characters beyond
+  //  the end of the table are not in the set.
+  //-------------------------------------------------------------------
+  static boolean in(final long[] set, final char c)
+    {
+      int i = c>>6;
+      return i<set.length && (set[i] & (1L<<c))!=0;
+    }
 
   //-------------------------------------------------------------------
   //  Pop Phrase from compile stack
@@ -486,32 +1089,246 @@ public class ParserBase implements mouse.runtime.CurrentRule
       Phrase p = current;
       current = p.parent;
       p.parent = null;
+      if (p.end>p.reach) p.reach = p.end;
+      reached(p.reach);                // Parent examined text of p
       return p;
     }
 
+  //-------------------------------------------------------------------
+  //  Register that current Phrase examined text up to position q-1.
+  //  Returns true for use in successful predicates.
+  //-------------------------------------------------------------------
+  boolean reached(int q)
+    {
+      if (q>current.reach) current.reach = q;
+      return true;
+    }
+
   //-------------------------------------------------------------------
   //  Consume terminal
   //-------------------------------------------------------------------
   private boolean consume(int n)
     {
-      Phrase p = new Phrase("","",pos);
+      if (noTerms || current.lean)
+      {
+        pos += n;
+        current.end = pos;
+        return true;
+      }
+      Phrase p = phrase("","",pos);
       pos += n;
       p.end = pos;
-      current.rhs.add(p);
+      current.rhsAdd(p);
       current.end = pos;
       return true;
     }
 
+  //-------------------------------------------------------------------
+  //  Consume 'n' characters matched one by one. Each is a terminal
+  //  in the right-hand side, unless terminals are not recorded.
+  //-------------------------------------------------------------------
+  private void consumeEach(int n)
+    {
+      if (n==0) return;
+      if (noTerms || current.lean)
+        consume(n);
+      else
+        for (int i=0;i<n;i++)
+          consume(1);
+    }
+
+  //-------------------------------------------------------------------
+  //  New Phrase, taken from the arena if there is one.
+  //-------------------------------------------------------------------
+  private Phrase phrase(final String name,final String diag,int start)
+    {
+      if (freeCount==0) return new Phrase(name,diag,start);
+      Phrase p = free[--freeCount];
+      p.reuse(name,diag,start);
+      return p;
+    }
+
+  //-------------------------------------------------------------------
+  //  Return Phrase 'p', with empty right-hand side, to the arena.
+  //-------------------------------------------------------------------
+  private void release(Phrase p)
+    {
+      if (!arena) return;
+      if (freeCount==free.length)
+        free = Arrays.copyOf(free,2*freeCount);
+      p.value = null;
+      free[freeCount++] = p;
+    }
+
+  //-------------------------------------------------------------------
+  //  Remove right-hand side of Phrase 'p'.
+  //  In arena mode, keep the list and return its Phrases to the arena.
+  //-------------------------------------------------------------------
+  private void dropRhs(Phrase p)
+    {
+      if (arena) clearRhs(p);
+      else
+      {
+        p.rhs = null;
+        p.rhsSize = 0;
+      }
+    }
+
+  private void clearRhs(Phrase p)
+    {
+      if (arena)
+        for (int i=0;i<p.rhsSize;i++)
+          release(p.rhs[i]);
+      p.rhsClear();
+    }
+
+  //-------------------------------------------------------------------
+  //  Read more text from stream to have character at 'pos'.
+  //  Called when 'pos' reached 'endpos'.
+  //-------------------------------------------------------------------
+  private boolean more()
+    {
+      if (stream==null) return false;
+      boolean has = stream.fill(pos);
+      endpos = stream.end();
+      return has;
+    }
+
   //-------------------------------------------------------------------
   //  Fail
   //-------------------------------------------------------------------
   private boolean fail(String msg)
     {
+      reached(pos+1);
+      if (farthest) return farFail(msg);
       current.errAdd(msg);
       return false;
     }
 
 
+  //=====================================================================
+  //
+  //  Parsing from stream
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Item of the start rule was accepted: pass it to semantics.
+  //  The text before 'pos' and the Phrases for it are not needed
+  //  any more. Neither are the failure texts saved by Phrases
+  //  within the item.
+  //-------------------------------------------------------------------
+  void commit()
+    {
+      for (int i=0;i<current.rhsSize;i++)
+        sem.item(current.rhs[i]);
+      current.rhsClear();
+      if (farFrom>current.farCnt)
+      {
+        int n = farCount - farFrom;
+        System.arraycopy(farTxt,farFrom,farTxt,current.farCnt,n);
+        farFrom = current.farCnt;
+        farCount = farFrom + n;
+      }
+      if (stream==null) return;
+      int d = stream.release(pos);
+      if (d>0) shift(d);
+    }
+
+  //-------------------------------------------------------------------
+  //  Subtract 'd' from all positions. Failures before 'd'
+  //  can not be reported any more: a later failure is farther.
+  //-------------------------------------------------------------------
+  void shift(int d)
+    {
+      pos -= d;
+      endpos -= d;
+      for (Phrase p=current;p!=null;p=p.parent)
+      {
+        p.start -= d;
+        p.end = pos;
+        p.reach -= d;
+        if (p.errPos>=d) p.errPos -= d;
+        else p.errPos = -1;
+        if (p.farAt>=d) p.farAt -= d;
+      }
+      if (farPos>=d) farPos -= d;
+      else
+      {
+        farPos = -1;
+        farFrom = 0;
+        farCount = 0;
+      }
+    }
+
+
+  //=====================================================================
+  //
+  //  Farthest failure (mode FARTHEST_ERROR)
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Save state of farthest failure in Phrase 'p' that starts.
+  //-------------------------------------------------------------------
+  private void save(Phrase p)
+    {
+      p.farAt = farPos;
+      p.farBase = farFrom;
+      p.farCnt = farCount;
+    }
+
+  //-------------------------------------------------------------------
+  //  Forget failures registered after Phrase 'p' started.
+  //-------------------------------------------------------------------
+  private void restore(Phrase p)
+    {
+      farPos = p.farAt;
+      farFrom = p.farBase;
+      farCount = p.farCnt;
+    }
+
+  //-------------------------------------------------------------------
+  //  Upgrade farthest failure of Phrase 'p' that failed at its start
+  //  to 'expected <diag>'. Keep failures registered at the same
+  //  position before it started.
+  //-------------------------------------------------------------------
+  private void upgrade(Phrase p)
+    {
+      if (farPos!=p.start) return;
+      if (p.farAt!=farPos)
+        farCount = farFrom;
+      else if (farCount>p.farCnt)
+        farCount = p.farCnt;
+      else return;                      // No failure of its own
+      farAdd(p.diag);
+    }
+
+  //-------------------------------------------------------------------
+  //  Register failure of 'who' at current position.
+  //  Texts for a newer position are placed after those saved
+  //  by the current Phrase, which may still restore them.
+  //-------------------------------------------------------------------
+  private boolean farFail(final String who)
+    {
+      if (noErrors) return false;       // If no error info: forget
+      if (farPos>pos) return false;     // If current position older: forget
+      if (farPos<pos)                   // If current position newer: replace
+      {
+        farPos = pos;
+        farFrom = current.farCnt;
+        farCount = farFrom;
+      }
+      farAdd(who);
+      return false;
+    }
+
+  private void farAdd(final String who)
+    {
+      if (farCount==farTxt.length)
+        farTxt = Arrays.copyOf(farTxt,2*farCount);
+      farTxt[farCount++] = who;
+    }
+
+
 
   //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
   //
@@ -527,28 +1344,67 @@ public class ParserBase implements mouse.runtime.CurrentRule
     //
     //===================================================================
 
-    final String name;
-    final String diag;
-    final int start;
+    String name;
+    String diag;
+    int start;
     int end;
     boolean success;
-    Vector<Phrase> rhs = new Vector<Phrase>(10,10);
     Object value = null;
     Phrase parent = null;
 
+    //-----------------------------------------------------------------
+    //  Right-hand side: 'rhs' from 0 to 'rhsSize'-1.
+    //  The array is allocated on first 'rhsAdd', so a terminal has
+    //  none, and grows when needed. It is kept when the Phrase
+    //  is used again. It is null for a finished rule that
+    //  does not need it any more.
+    //-----------------------------------------------------------------
+    Phrase[] rhs = noRhs;
+    int rhsSize = 0;
+
     //-----------------------------------------------------------------
     //  Errors encountered in processing of this Phrase.
     //  We keep information about the failure farthest down in text,
     //  and only failure of a rule or a terminal (inner expressions
     //  do not have diagnostic names.
     //  - 'errPos' is position the failure, or -1 if there was none.
-    //  - 'errTxt' identifies the expression(s) that failed at 'errPos'.
+    //  - 'errTxt' from 0 to 'errCount'-1 identify the expression(s)
+    //     that failed at 'errPos'.
     //     There may be several such expressions if 'errPos' was reached
     //     on several attempts. The expressions are identified
     //     by their diagnostic names.
     //-----------------------------------------------------------------
     int errPos = -1;
-    Vector<String> errTxt = new Vector<String>();
+    String[] errTxt = null;
+    int errCount = 0;
+
+    //-----------------------------------------------------------------
+    //  In mode FARTHEST_ERROR: 'farPos', 'farFrom' and 'farCount'
+    //  of the parser at the time this Phrase started.
+    //-----------------------------------------------------------------
+    int farAt = -1;
+    int farBase = 0;
+    int farCnt = 0;
+
+    //-----------------------------------------------------------------
+    //  Position after the farthest character examined in processing
+    //  of this Phrase, by its own text, lookahead, or failed attempts.
+    //  The result depends only on text from 'start' to 'reach'-1.
+    //  'moved' is used by ParserMemo when moving saved results.
+    //-----------------------------------------------------------------
+    int reach;
+    boolean moved = false;
+
+    //-----------------------------------------------------------------
+    //  Set for a transient Rule and its subexpressions:
+    //  nothing is added to the right-hand side.
+    //-----------------------------------------------------------------
+    boolean lean = false;
+
+    //-----------------------------------------------------------------
+    //  Set when the parsing procedure of this Phrase passed a cut.
+    //-----------------------------------------------------------------
+    boolean cut = false;
 
 
     //===================================================================
@@ -563,6 +1419,42 @@ public class ParserBase implements mouse.runtime.CurrentRule
         this.diag = diag;
         this.start = start;
         this.end = start;
+        this.reach = start;
+      }
+
+    //-----------------------------------------------------------------
+    //  Make the Phrase empty at position 0, keeping its lists.
+    //  Used for the bottom of parse stack when parser is used again.
+    //-----------------------------------------------------------------
+    void reset()
+      {
+        start = 0;
+        end = 0;
+        reach = 0;
+        success = false;
+        rhsClear();
+        value = null;
+        errPos = -1;
+        errCount = 0;
+        farAt = -1;
+        farBase = 0;
+        farCnt = 0;
+        lean = false;
+        cut = false;
+      }
+
+    //-----------------------------------------------------------------
+    //  Make the Phrase new for 'name' at 'start', keeping its lists.
+    //  Used for a Phrase taken from the arena.
+    //-----------------------------------------------------------------
+    void reuse(final String name,final String diag,int start)
+      {
+        reset();
+        this.name = name;
+        this.diag = diag;
+        this.start = start;
+        this.end = start;
+        this.reach = start;
       }
 
     //===================================================================
@@ -623,8 +1515,10 @@ public class ParserBase implements mouse.runtime.CurrentRule
     //-----------------------------------------------------------------
     public String errMsg()
       {
+        if (farthest) return farMsg();
         if (errPos<0) return "";
-        return source.where(errPos) + ":" + listErr();
+        return source.where(errPos) + ":"
+               + listErr(Arrays.asList(errTxt).subList(0,errCount));
       }
 
     //-----------------------------------------------------------------
@@ -632,7 +1526,12 @@ public class ParserBase implements mouse.runtime.CurrentRule
     //-----------------------------------------------------------------
     public void errClear()
       {
-        errTxt.clear();
+        if (farthest)
+        {
+          if (onStack()) restore(this);
+          return;
+        }
+        errCount = 0;
         errPos = -1;
       }
 
@@ -642,6 +1541,78 @@ public class ParserBase implements mouse.runtime.CurrentRule
     public String where(int i)
       { return source.where(start+i); }
 
+    //-----------------------------------------------------------------
+    //  Line and column of i-th character of the Phrase in source text.
+    //-----------------------------------------------------------------
+    public int line(int i)
+      { return (int)lines().line(start+i); }
+
+    public int column(int i)
+      { return (int)lines().column(start+i); }
+
+
+    //===================================================================
+    //
+    //  Operations on right-hand side
+    //
+    //===================================================================
+
+    //-----------------------------------------------------------------
+    //  Add Phrase 'p' to right-hand side.
+    //-----------------------------------------------------------------
+    void rhsAdd(final Phrase p)
+      {
+        if (rhsSize==rhs.length)
+          rhs = Arrays.copyOf(rhs,rhsSize==0? 4 : 2*rhsSize);
+        rhs[rhsSize++] = p;
+      }
+
+    //-----------------------------------------------------------------
+    //  Add right-hand side of Phrase 'p' to right-hand side.
+    //-----------------------------------------------------------------
+    void rhsAddAll(final Phrase p)
+      {
+        if (p.rhsSize==0) return;
+        int n = rhsSize + p.rhsSize;
+        if (n>rhs.length)
+          rhs = Arrays.copyOf(rhs,Math.max(n,2*rhs.length));
+        System.arraycopy(p.rhs,0,rhs,rhsSize,p.rhsSize);
+        rhsSize = n;
+      }
+
+    //-----------------------------------------------------------------
+    //  Make right-hand side empty.
+    //-----------------------------------------------------------------
+    void rhsClear()
+      {
+        Arrays.fill(rhs,0,rhsSize,null);
+        rhsSize = 0;
+      }
+
+    //-----------------------------------------------------------------
+    //  Make arrays just large enough for their contents.
+    //  Used for a Phrase that is saved for reuse.
+    //-----------------------------------------------------------------
+    void fit()
+      {
+        if (rhs!=null && rhs.length>rhsSize)
+          rhs = rhsSize==0? noRhs : Arrays.copyOf(rhs,rhsSize);
+        if (errTxt!=null && errTxt.length>errCount)
+          errTxt = errCount==0? null : Arrays.copyOf(errTxt,errCount);
+      }
+
+    //-----------------------------------------------------------------
+    //  Forget error info, with its list of texts.
+    //  Used for a Phrase that stays in the tree after its error info
+    //  was merged with the parent.
+    //-----------------------------------------------------------------
+    void errFree()
+      {
+        errCount = 0;
+        errPos = -1;
+        errTxt = null;
+      }
+
 
     //===================================================================
     //
@@ -649,13 +1620,32 @@ public class ParserBase implements mouse.runtime.CurrentRule
     //
     //===================================================================
 
+    //-----------------------------------------------------------------
+    //  Empty list of texts, created when first needed.
+    //-----------------------------------------------------------------
+    private void errNew()
+      {
+        if (errTxt==null) errTxt = new String[4];
+        errCount = 0;
+      }
+
+    //-----------------------------------------------------------------
+    //  Add 'who' to list of texts.
+    //-----------------------------------------------------------------
+    private void errPut(final String who)
+      {
+        if (errCount==errTxt.length)
+          errTxt = Arrays.copyOf(errTxt,2*errCount);
+        errTxt[errCount++] = who;
+      }
+
     //-----------------------------------------------------------------
     //  Set fresh info ('who' failed 'where'), discarding any previous.
     //-----------------------------------------------------------------
     void errSet(final String who, int where)
       {
-        errTxt.clear();
-        errTxt.add(who);
+        errNew();
+        errPut(who);
         errPos = where;
       }
 
@@ -667,13 +1657,13 @@ public class ParserBase implements mouse.runtime.CurrentRule
         if (errPos>pos) return;   // If current position older: forget
         if (errPos<pos)           // If current position newer: replace
         {
-          errTxt.clear();
+          errNew();
           errPos = pos;
-          errTxt.add(who);
+          errPut(who);
           return;
         }
                                   // If error at same position: add
-        errTxt.add(who);
+        errPut(who);
       }
 
     //-----------------------------------------------------------------
@@ -691,74 +1681,114 @@ public class ParserBase implements mouse.runtime.CurrentRule
         if (errPos>p.errPos) return;    // If error in p older: forget
         if (errPos<p.errPos)            // If error in p newer: replace all info
         {
-          errTxt.clear();
+          errNew();
           errPos = p.errPos;
-          errTxt.addAll(p.errTxt);
+          for (int i=0;i<p.errCount;i++)
+            errPut(p.errTxt[i]);
           return;
         }
                                         // If error in p at same position
-        errTxt.addAll(p.errTxt);        // Add all from p
+        for (int i=0;i<p.errCount;i++)  // Add all from p
+          errPut(p.errTxt[i]);
       }
 
+
+    //===================================================================
+    //
+    //  Error info in mode FARTHEST_ERROR
+    //
+    //===================================================================
+
     //-----------------------------------------------------------------
-    //  List errors
+    //  Message for failures registered after this Phrase started,
+    //  if they are at the farthest position. The Phrase must be
+    //  on the parse stack: error info of a finished Phrase is not kept.
     //-----------------------------------------------------------------
-    private String listErr()
+    String farMsg()
       {
-        StringBuilder one = new StringBuilder();
-        StringBuilder two = new StringBuilder();
-        Vector<String> done = new Vector<String>();
-        for (String s: errTxt)
-        {
-          if (done.contains(s)) continue;
-          done.add(s);
-          if (s.startsWith("not "))
-            toPrint(" or " + s.substring(4),two);
-          else
-            toPrint(" or " + s,one);
-        }
-
-        if (one.length()>0)
+        if (farPos<0 || !onStack()) return "";
+        int from = farFrom;
+        if (farAt==farPos)
         {
-          if (two.length()==0)
-            return " expected " + one.toString().substring(4);
-          else
-            return " expected " + one.toString().substring(4) +
-                   "; not expected " + two.toString().substring(4);
+          if (farCount<=farCnt) return "";
+          from = farCnt;
         }
-        else
-          return " not expected " + two.toString().substring(4);
+        return source.where(farPos) + ":"
+               + listErr(Arrays.asList(farTxt).subList(from,farCount));
       }
 
     //-----------------------------------------------------------------
-    //  Convert string to printable and append to StringBuilder.
+    //  Is this Phrase on the parse stack?
     //-----------------------------------------------------------------
-    private void toPrint(final String s, StringBuilder sb)
+    boolean onStack()
       {
-        for (int i=0;i<s.length();i++)
-        {
-          char c = s.charAt(i);
-          switch(c)
-          {
-            case '\b': sb.append("\\b"); continue;
-            case '\f': sb.append("\\f"); continue;
-            case '\n': sb.append("\\n"); continue;
-            case '\r': sb.append("\\r"); continue;
-            case '\t': sb.append("\\t"); continue;
-            default:
-              if (c<32 || c>256)
-              {
-                String u = "000" + Integer.toHexString(c);
-                sb.append("\\u" + u.substring(u.length()-4,u.length()));
-              }
-              else sb.append(c);
-              continue;
-          }
-        }
+        for (Phrase p=current;p!=null;p=p.parent)
+          if (p==this) return true;
+        return false;
       }
   }
 
-}
 
+  //=====================================================================
+  //
+  //  Error message text
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  List errors
+  //-------------------------------------------------------------------
+  static String listErr(final Iterable<String> errTxt)
+    {
+      StringBuilder one = new StringBuilder();
+      StringBuilder two = new StringBuilder();
+      Vector<String> done = new Vector<String>();
+      for (String s: errTxt)
+      {
+        if (done.contains(s)) continue;
+        done.add(s);
+        if (s.startsWith("not "))
+          toPrint(" or " + s.substring(4),two);
+        else
+          toPrint(" or " + s,one);
+      }
+
+      if (one.length()>0)
+      {
+        if (two.length()==0)
+          return " expected " + one.toString().substring(4);
+        else
+          return " expected " + one.toString().substring(4) +
+                 "; not expected " + two.toString().substring(4);
+      }
+      else
+        return " not expected " + two.toString().substring(4);
+    }
 
+  //-------------------------------------------------------------------
+  //  Convert string to printable and append to StringBuilder.
+  //-------------------------------------------------------------------
+  static void toPrint(final String s, StringBuilder sb)
+    {
+      for (int i=0;i<s.length();i++)
+      {
+        char c = s.charAt(i);
+        switch(c)
+        {
+          case '\b': sb.append("\\b"); continue;
+          case '\f': sb.append("\\f"); continue;
+          case '\n': sb.append("\\n"); continue;
+          case '\r': sb.append("\\r"); continue;
+          case '\t': sb.append("\\t"); continue;
+          default:
+            if (c<32 || c>256)
+            {
+              String u = "000" + Integer.toHexString(c);
+              sb.append("\\u" + u.substring(u.length()-4,u.length()));
+            }
+            else sb.append(c);
+            continue;
+        }
+      }
+    }
 
+}
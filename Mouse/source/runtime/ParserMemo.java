@@ -26,12 +26,35 @@
 //    100504 In Cache(String) set diag to name instead of null.
 //   Version 1.6
 //    130416 Allowed m=0 to enable performance comparisons.
+//   Version 1.7
+//    261017 Added full memoization (packrat parsing) selected by
+//           setMemo(PACKRAT), using one memo table for all Caches.
+//    261017 Error mode FARTHEST_ERROR is used only without memoization.
+//    261017 No merge of error info from reused Phrase in 'initFast' pass.
+//    261017 Forget saved results on commit and shift for SourceStream.
+//           Commit also for items passed to semantics (option -i).
+//    261017 Added 'edit' for incremental reparsing with PACKRAT.
+//    261017 Reset Cache arrays and memo table in place when possible.
+//    261017 Arena mode is used only without memoization.
+//    261017 Nothing is added to the right-hand side of a transient
+//           Rule. Its saved subexpressions are not reused elsewhere.
+//    261017 Reused inner expression tells if it passed a cut.
+//           With PACKRAT, a cut lets the memo table drop results
+//           that can not be used any more instead of growing.
+//    261017 Added 'reuseAtomic' for '@e'; error info of its Phrase
+//           is kept when it is saved for reuse.
+//    261017 Memo table starts small and grows with the number of
+//           results instead of being made for the length of text.
+//    261017 Bug fix: a kept table that grew for a long text was
+//           cleared for each following short text.
 //
 //=========================================================================
 
 package mouse.runtime;
 
 import mouse.runtime.Source;
+import java.util.Arrays;
+import java.util.Vector;
 
 
 //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
@@ -48,6 +71,24 @@ public class ParserMemo extends ParserBase
   //-------------------------------------------------------------------
   int cacheSize = 1;
 
+  //-------------------------------------------------------------------
+  //  Value of 'm' in setMemo selecting full memoization:
+  //  every result is kept in one table for the parser, keyed by
+  //  Cache and position. Each expression is then evaluated at most
+  //  once at each position, which makes parsing time linear.
+  //-------------------------------------------------------------------
+  public static final int PACKRAT = Integer.MAX_VALUE;
+
+  //-------------------------------------------------------------------
+  //  Memo table, or null if not packrat.
+  //-------------------------------------------------------------------
+  MemoTable table;
+
+  //-------------------------------------------------------------------
+  //  Was 'table' adjusted by 'edit' for the next parse?
+  //-------------------------------------------------------------------
+  boolean edited = false;
+
   //-------------------------------------------------------------------
   //  Phrase to reuse.
   //-------------------------------------------------------------------
@@ -70,8 +111,27 @@ public class ParserMemo extends ParserBase
   public void init(Source src)
     {
       super.init(src);
-      for (Cache c: caches) // Reset Cache objects
-        c.reset();
+      if (cacheSize>0)                 // Reused Phrases need own error info
+      {                                // .. and must not be used again
+        farthest = false;
+        arena = false;
+        saving = true;
+      }
+      if (cacheSize!=PACKRAT)
+        table = null;
+      else if (!edited)                // Keep results adjusted by 'edit'
+      {
+        if (table!=null && table.fits(endpos))
+          table.clear(endpos);
+        else
+          table = new MemoTable(endpos);
+      }
+      edited = false;
+      for (int i=0;i<caches.length;i++) // Reset Cache objects
+      {
+        caches[i].index = i;
+        caches[i].reset();
+      }
     }
 
   //-------------------------------------------------------------------
@@ -79,7 +139,8 @@ public class ParserMemo extends ParserBase
   //-------------------------------------------------------------------
   public void setMemo(int m)
     {
-      if (m<0 | m>9) throw new Error("m=" + m + " is outside range 0-9");
+      if ((m<0 | m>9) && m!=PACKRAT)
+        throw new Error("m=" + m + " is outside range 0-9");
       cacheSize = m;
     }
 
@@ -111,6 +172,8 @@ public class ParserMemo extends ParserBase
   protected boolean savedInner(Cache c)
     {
       reuse = c.find();
+      if (reuse!=null && reuse.lean && !current.lean)
+        reuse = null;                  // Saved without right-hand side
       if (reuse!=null)                 // If found Phrase to reuse..
         return true;                   // .. return
 
@@ -119,22 +182,68 @@ public class ParserMemo extends ParserBase
       return false;
     }
 
+  //-------------------------------------------------------------------
+  //  Accept Inner. The Phrase may be saved with its right-hand side
+  //  for reuse: keep only the part of its arrays that is used.
+  //-------------------------------------------------------------------
+  protected boolean acceptInner()
+    {
+      Phrase p = current;
+      super.acceptInner();
+      if (cacheSize>0) p.fit();
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Accept Atomic. The Phrase may be saved for reuse, as for Inner.
+  //-------------------------------------------------------------------
+  protected boolean acceptAtomic()
+    {
+      Phrase p = current;
+      super.acceptAtomic();
+      if (cacheSize>0) p.fit();
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Cut. After a cut, the parser does not normally return to text
+  //  before the start of the item of the start rule being parsed
+  //  (or before the cut, if it is in the start rule itself).
+  //  With PACKRAT, the memo table drops results saved before that
+  //  position when it is full instead of growing. A dropped result
+  //  that is needed after all is just computed again.
+  //-------------------------------------------------------------------
+  protected void cut()
+    {
+      super.cut();
+      if (table==null) return;
+      Phrase p = current;              // Find item of the start rule
+      while (p.parent.parent!=null && p.parent.parent.parent!=null)
+        p = p.parent;
+      int dead = p.parent.parent==null? pos : p.start;
+      if (dead>table.dead) table.dead = dead;
+    }
+
   //-------------------------------------------------------------------
   //  Reuse Rule
   //-------------------------------------------------------------------
   protected boolean reuse()
     {
+      reached(reuse.reach);            // Current examined text of reuse
       if (reuse.success)
       {
         pos = reuse.end;               // Update position
         current.end = pos;             // Update end of current
-        current.rhs.add(reuse);        // Attach p to rhs of current
-        current.errMerge(reuse);       // Merge error info with current
+        if (!current.lean)
+          current.rhsAdd(reuse);       // Attach p to rhs of current
+        if (!farthest)                 // Merge error info with current
+          current.errMerge(reuse);
         return true;
       }
       else
       {
-        current.errMerge(reuse);       // Merge error info with current
+        if (!farthest)                 // Merge error info with current
+          current.errMerge(reuse);
         return false;
       }
     }
@@ -144,17 +253,47 @@ public class ParserMemo extends ParserBase
   //-------------------------------------------------------------------
   protected boolean reuseInner()
     {
+      reached(reuse.reach);            // Current examined text of reuse
+      passedCut = reuse.cut;           // Tell if reuse passed a cut
       if (reuse.success)
       {
         pos = reuse.end;               // Update position
         current.end = pos;             // Update end of current
-        current.rhs.addAll(reuse.rhs); // Add rhs to rhs of current
-        current.errMerge(reuse);       // Merge error info with current
+        if (!current.lean)
+          current.rhsAddAll(reuse);    // Add rhs to rhs of current
+        if (!farthest)                 // Merge error info with current
+          current.errMerge(reuse);
         return true;
       }
       else
       {
-        current.errMerge(reuse);       // Merge error info with current
+        if (!farthest)                 // Merge error info with current
+          current.errMerge(reuse);
+        return false;
+      }
+    }
+
+  //-------------------------------------------------------------------
+  //  Reuse Atomic
+  //-------------------------------------------------------------------
+  protected boolean reuseAtomic()
+    {
+      reached(reuse.reach);            // Current examined text of reuse
+      passedCut = reuse.cut;           // Tell if reuse passed a cut
+      if (reuse.success)
+      {
+        pos = reuse.end;               // Update position
+        current.end = pos;             // Update end of current
+        if (!current.lean)
+          current.rhsAdd(reuse);       // Attach reuse to rhs of current
+        if (!farthest)                 // Merge error info with current
+          current.errMerge(reuse);
+        return true;
+      }
+      else
+      {
+        if (!farthest)                 // Merge error info with current
+          current.errMerge(reuse);
         return false;
       }
     }
@@ -164,16 +303,108 @@ public class ParserMemo extends ParserBase
   //-------------------------------------------------------------------
   protected boolean reusePred()
     {
+      reached(reuse.reach);            // Current examined text of reuse
       if (reuse.success)
         return true;
       else
       {
-        current.errMerge(reuse);       // Merge error info with current
+        if (!farthest)                 // Merge error info with current
+          current.errMerge(reuse);
         return false;
       }
     }
 
 
+  //=====================================================================
+  //
+  //  Incremental reparsing
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  The text of last parse was changed at position 'offset':
+  //  'removed' characters were replaced by 'inserted' new ones.
+  //  The next parse, which must be of the changed text, reuses
+  //  the saved results that did not examine the changed part.
+  //  Results after it are moved by the change in length.
+  //  The parse then repeats only the work that examined the change:
+  //  a change in one method of a large class redoes that method
+  //  and the rules that contain it, not the other methods.
+  //  Semantic actions are not called again for reused results.
+  //  Has effect only with setMemo(PACKRAT). Several changes may
+  //  be given before the parse, each in positions of the text
+  //  changed by those before it.
+  //-------------------------------------------------------------------
+  public void edit(int offset, int removed, int inserted)
+    {
+      if (table==null) return;
+      int after = offset + removed;    // Old position after removed text
+      int d = inserted - removed;      // Change of positions after it
+      long[] keys = table.keys;
+      Phrase[] vals = table.vals;
+      table = new MemoTable(table.textSize);
+      Vector<Phrase> moved = new Vector<Phrase>();
+      for (int i=0;i<keys.length;i++)
+      {
+        Phrase p = vals[i];
+        if (p==null) continue;
+        if (p.reach>offset && p.start<after) continue; // Examined change
+        if (p.start>=after)
+        {
+          move(p,d,moved);
+          if (p.rhs!=null)             // Inner: move its right-hand side
+            for (int j=0;j<p.rhsSize;j++)
+              move(p.rhs[j],d,moved);
+        }
+        table.put((int)(keys[i]>>>32),p);
+      }
+      for (Phrase p: moved)
+        p.moved = false;
+      edited = true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Add 'd' to positions of Phrase 'p', unless already done.
+  //  A Phrase can be in the right-hand sides of several results.
+  //-------------------------------------------------------------------
+  private void move(Phrase p, int d, Vector<Phrase> moved)
+    {
+      if (p.moved) return;
+      p.start += d;
+      p.end += d;
+      p.reach += d;
+      if (p.errPos>=0) p.errPos += d;
+      p.moved = true;
+      moved.add(p);
+    }
+
+
+  //=====================================================================
+  //
+  //  Parsing from stream
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Item of the start rule was accepted: forget the memo table,
+  //  which would otherwise keep results for the whole input.
+  //-------------------------------------------------------------------
+  void commit()
+    {
+      super.commit();
+      if (table!=null) table.clear();
+    }
+
+  //-------------------------------------------------------------------
+  //  Positions are shifted: saved results have old positions.
+  //-------------------------------------------------------------------
+  void shift(int d)
+    {
+      super.shift(d);
+      if (table!=null) return;
+      for (Cache c: caches)
+        c.reset();
+    }
+
+
   //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
   //
   //  Cache
@@ -187,6 +418,7 @@ public class ParserMemo extends ParserBase
 
     Phrase[] cache;
     int last;
+    int index;      // Position in 'caches', used as key in 'table'
 
     public Cache(final String name)
       {
@@ -202,13 +434,23 @@ public class ParserMemo extends ParserBase
 
     void reset()
       {
-        cache = new Phrase[cacheSize];
+        if (table!=null)
+          cache = null;
+        else if (cache==null || cache.length!=cacheSize)
+          cache = new Phrase[cacheSize];
+        else
+          Arrays.fill(cache,null);
         last = 0;
       }
 
     void save(Phrase p)
       {
         if (cacheSize==0) return;
+        if (table!=null)
+        {
+          table.put(index,p);
+          return;
+        }
         last = (last+1)%cacheSize;
         cache[last] = p;
       }
@@ -216,13 +458,152 @@ public class ParserMemo extends ParserBase
     Phrase find()
       {
         if (cacheSize==0) return null;
+        if (table!=null) return table.get(index,pos);
         for (Phrase p: cache)
           if (p!=null && p.start==pos) return p;
         return null;
       }
   }
 
-}
 
 
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+  //
+  //  MemoTable
+  //
+  //-----------------------------------------------------------------------
+  //
+  //  Results of all Caches for packrat parsing, in a hash table
+  //  with open addressing. The key is built from Cache index
+  //  and start position of the Phrase; it is never -1, which
+  //  marks a free slot. The table starts with 'minCap' slots
+  //  and doubles when half full.
+  //
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+  static class MemoTable
+  {
+    long[] keys;
+    Phrase[] vals;
+    int size;
+    int mask;
+    int dead;       // Results starting before it are not needed
+    int dropped;    // 'dead' when they were last dropped
+    int textSize;   // Longest text the table was used for
 
+    static final int minCap = 1024;
+
+    MemoTable(int textSize)
+      {
+        alloc(minCap);
+        this.textSize = textSize;
+      }
+
+    //---------------------------------------------------------------
+    //  Can the table be cleared and used for text of 'textSize'?
+    //  Not if it may have grown for a much longer text:
+    //  clearing it could then take longer than the parse.
+    //  'textSize' of the table is the longest text since it was
+    //  made, as it keeps the size it grew to.
+    //---------------------------------------------------------------
+    boolean fits(int textSize)
+      { return keys.length==minCap || 4L*textSize>=this.textSize; }
+
+    void put(int index, Phrase p)
+      {
+        if (2*(size+1)>keys.length && dead>dropped) drop();
+        if (2*(size+1)>keys.length) grow();
+        long key = key(index,p.start);
+        int i = slot(key);
+        while (keys[i]!=-1)
+        {
+          if (keys[i]==key) { vals[i] = p; return; }
+          i = (i+1)&mask;
+        }
+        keys[i] = key;
+        vals[i] = p;
+        size++;
+      }
+
+    Phrase get(int index, int pos)
+      {
+        long key = key(index,pos);
+        int i = slot(key);
+        while (keys[i]!=-1)
+        {
+          if (keys[i]==key) return vals[i];
+          i = (i+1)&mask;
+        }
+        return null;
+      }
+
+    //---------------------------------------------------------------
+    //  Clear to be used again for text of 'textSize'.
+    //---------------------------------------------------------------
+    void clear(int textSize)
+      {
+        clear();
+        if (textSize>this.textSize) this.textSize = textSize;
+      }
+
+    void clear()
+      {
+        dead = 0;
+        dropped = 0;
+        if (size==0) return;
+        Arrays.fill(keys,-1);
+        Arrays.fill(vals,null);
+        size = 0;
+      }
+
+    private void alloc(int cap)
+      {
+        keys = new long[cap];
+        vals = new Phrase[cap];
+        Arrays.fill(keys,-1);
+        mask = cap-1;
+        size = 0;
+      }
+
+    private void grow()
+      { rehash(2*keys.length,0); }
+
+    //---------------------------------------------------------------
+    //  Remove results that start before 'dead'.
+    //---------------------------------------------------------------
+    private void drop()
+      {
+        rehash(keys.length,dead);
+        dropped = dead;
+      }
+
+    //---------------------------------------------------------------
+    //  Move results that start at 'from' or later
+    //  to new arrays with capacity 'cap'.
+    //---------------------------------------------------------------
+    private void rehash(int cap, int from)
+      {
+        long[] oldKeys = keys;
+        Phrase[] oldVals = vals;
+        alloc(cap);
+        for (int j=0;j<oldKeys.length;j++)
+        {
+          if (oldKeys[j]==-1 || (int)oldKeys[j]<from) continue;
+          int i = slot(oldKeys[j]);
+          while (keys[i]!=-1) i = (i+1)&mask;
+          keys[i] = oldKeys[j];
+          vals[i] = oldVals[j];
+          size++;
+        }
+      }
+
+    private static long key(int index, int pos)
+      { return ((long)index<<32) | pos; }
+
+    private int slot(long key)
+      {
+        long h = key*0x9E3779B97F4A7C15L;
+        return (int)(h>>>32) & mask;
+      }
+  }
+}
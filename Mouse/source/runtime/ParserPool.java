@@ -0,0 +1,121 @@
+//=========================================================================
+//
+//  Part of PEG parser generator Mouse.
+//
+//  Copyright (C) 2026 by the Mouse contributors.
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+//-------------------------------------------------------------------------
+//
+//  Change log
+//  Version 1.7
+//   261017 Created.
+//
+//=========================================================================
+
+package mouse.runtime;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+//
+//  ParserPool
+//
+//-------------------------------------------------------------------------
+//
+//  Parser objects of one generated class, shared by many threads.
+//
+//  The grammar is compiled into the code of the generated class and
+//  its static final tables of terminals and character sets, which
+//  are shared by all its objects. A parser object holds only the
+//  state of one parse: source, position, parse stack, caches and
+//  semantics. It can not be used by two threads at the same time,
+//  but it can be used again: 'parse' resets its state.
+//
+//  The pool keeps parser objects that are not in use. A thread
+//  takes one with 'get', parses, obtains results from its semantics,
+//  and gives it back with 'put':
+//
+//    ParserPool<MyParser> pool = new ParserPool<MyParser>(MyParser.class);
+//    ...
+//    MyParser p = pool.get();
+//    try { if (p.parse(src)) use(p.semantics()); }
+//    finally { pool.put(p); }
+//
+//  A new object is constructed only if all are in use, so there are
+//  never more objects than threads parsing at the same time.
+//  The pool is a lock-free queue: it does not block, and does not
+//  depend on thread identity, so it can be used from virtual threads.
+//
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+public class ParserPool<P>
+{
+  //-------------------------------------------------------------------
+  //  Class of parsers and the parsers not in use.
+  //-------------------------------------------------------------------
+  private final Class<P> parserClass;
+  private final ConcurrentLinkedQueue<P> free = new ConcurrentLinkedQueue<P>();
+
+  //-------------------------------------------------------------------
+  //  Number of parser objects constructed.
+  //-------------------------------------------------------------------
+  private final AtomicInteger created = new AtomicInteger();
+
+
+  //=====================================================================
+  //
+  //  Constructor.
+  //
+  //=====================================================================
+  public ParserPool(final Class<P> parserClass)
+    { this.parserClass = parserClass; }
+
+
+  //=====================================================================
+  //
+  //  Access.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Take parser that is not in use, or construct a new one.
+  //-------------------------------------------------------------------
+  public P get()
+    {
+      P p = free.poll();
+      if (p!=null) return p;
+      try
+      {
+        p = parserClass.getDeclaredConstructor().newInstance();
+        created.incrementAndGet();
+        return p;
+      }
+      catch (Exception e)
+      { throw new Error("Can not construct " + parserClass.getName() + ": " + e); }
+    }
+
+  //-------------------------------------------------------------------
+  //  Give back parser obtained from 'get'.
+  //-------------------------------------------------------------------
+  public void put(P p)
+    { free.offer(p); }
+
+  //-------------------------------------------------------------------
+  //  Number of parser objects constructed so far.
+  //-------------------------------------------------------------------
+  public int created()
+    { return created.get(); }
+}
@@ -0,0 +1,858 @@
+//=========================================================================
+//
+//  Part of PEG parser generator Mouse.
+//
+//  Copyright (C) 2026 by the Mouse contributors.
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+//-------------------------------------------------------------------------
+//
+//  Change log
+//  Version 1.7
+//   261017 Created.
+//   261017 Added 'nextChar' and 'expected' for dispatch on first character.
+//   261017 Added methods for [s] and ^[s] with table of characters.
+//   261017 Match "s" with 'Source.matches'.
+//   261017 Added methods for terminals identified by number,
+//          with diagnostic texts in 'terms'.
+//   261017 Bug fix: after a predicate that registered a farther failure,
+//          'restore' returned texts overwritten by that failure.
+//          Texts for a newer position are now placed after 'errCnt'
+//          of the active procedure.
+//   261017 Added 'initFast' for parsing without error info.
+//   261017 Parse from SourceStream as in ParserBase.
+//   261017 Added 'cut' and 'afterCut' for cut '^' in a sequence.
+//   261017 Added 'acceptAtomic' for '@e', same as 'acceptInner'.
+//   261017 Added 'skipTo' and 'nextUntil' as in ParserBase.
+//
+//=========================================================================
+
+package mouse.runtime;
+
+import mouse.runtime.Source;
+import java.util.Arrays;
+
+
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+//
+//  ParserRecognizer
+//
+//-------------------------------------------------------------------------
+//
+//  Base for a parser generated with option -R: a recognizer that
+//  only answers whether the input conforms to the grammar.
+//  It does not build Phrase objects and does not call semantics.
+//  The parse stack is kept in arrays of start positions.
+//  Error information is kept only for the failure farthest down
+//  in the text. The texts of failed expressions are constructed
+//  only if they are at that position, so successful parsing does not
+//  allocate any objects once the arrays have grown to needed size.
+//  The error message has the same form as from ParserBase. It may list
+//  more expected items: ParserBase forgets failures at a position
+//  once a Phrase succeeds beyond it, even if parsing backtracks later.
+//
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+
+public class ParserRecognizer
+{
+  //-------------------------------------------------------------------
+  //  Input
+  //-------------------------------------------------------------------
+  Source source;                    // Source of text to parse
+  int endpos;                       // Position after the end of text
+  SourceStream stream;              // Source if it is a stream, or null
+  int pos;                          // Current position in the text
+
+  //-------------------------------------------------------------------
+  //  Trace string.
+  //-------------------------------------------------------------------
+  protected String trace = "";
+
+  //-------------------------------------------------------------------
+  //  Diagnostic texts of terminals, indexed by terminal number.
+  //  Set by the generated parser. 'termsNot' are the texts for
+  //  failing negation, made when first needed.
+  //-------------------------------------------------------------------
+  protected String[] terms = {};
+  private String[] termsNot = null;
+
+  //-------------------------------------------------------------------
+  //  Parse stack. For each active procedure:
+  //  - 'start' is the position where it started;
+  //  - 'diag' is its diagnostic name;
+  //  - 'errAt', 'errBase' and 'errCnt' are 'errPos', 'errFrom'
+  //    and 'errCount' at that time;
+  //  - 'cuts' tells if it passed a cut.
+  //  'top' is the number of active procedures.
+  //-------------------------------------------------------------------
+  int[] start = new int[64];
+  String[] diag = new String[64];
+  int[] errAt = new int[64];
+  int[] errBase = new int[64];
+  int[] errCnt = new int[64];
+  boolean[] cuts = new boolean[64];
+  int top = 0;
+
+  //-------------------------------------------------------------------
+  //  Did the inner procedure finished last pass a cut?
+  //-------------------------------------------------------------------
+  boolean passedCut = false;
+
+  //-------------------------------------------------------------------
+  //  Farthest failure.
+  //  - 'errPos' is its position, or -1 if there was none.
+  //  - 'errTxt' from 'errFrom' to 'errCount'-1 identify expressions
+  //     that failed at 'errPos'. Texts below 'errFrom' are those
+  //     for earlier positions that may be restored after a predicate.
+  //-------------------------------------------------------------------
+  int errPos = -1;
+  String[] errTxt = new String[16];
+  int errFrom = 0;
+  int errCount = 0;
+
+  //-------------------------------------------------------------------
+  //  No error info in this parse?
+  //-------------------------------------------------------------------
+  boolean noErrors = false;
+
+  //-------------------------------------------------------------------
+  //  Constructor
+  //-------------------------------------------------------------------
+  protected ParserRecognizer()
+    {}
+
+  //-------------------------------------------------------------------
+  //  Initialize parsing
+  //-------------------------------------------------------------------
+  public void init(Source src)
+    {
+      source = src;
+      pos = 0;
+      endpos = source.end();
+      stream = src instanceof SourceStream? (SourceStream)src : null;
+      top = 0;
+      errPos = -1;
+      errFrom = 0;
+      errCount = 0;
+      noErrors = false;
+    }
+
+  //-------------------------------------------------------------------
+  //  Initialize parsing without error info.
+  //  Used for the first pass of a parser generated with option -f.
+  //  Returns false, without initializing, if 'src' is a stream.
+  //-------------------------------------------------------------------
+  protected boolean initFast(Source src)
+    {
+      if (src instanceof SourceStream) return false;
+      init(src);
+      noErrors = true;
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Set trace
+  //-------------------------------------------------------------------
+  public void setTrace(String trace)
+    { this.trace = trace; }
+
+  //-------------------------------------------------------------------
+  //  Error message from last parse, or empty string if none.
+  //-------------------------------------------------------------------
+  public String errMsg()
+    {
+      if (errPos<0) return "";
+      return source.where(errPos) + ":"
+             + ParserBase.listErr(Arrays.asList(errTxt).subList(errFrom,errCount));
+    }
+
+  //-------------------------------------------------------------------
+  //  Print final error message.
+  //-------------------------------------------------------------------
+  protected boolean failure()
+    {
+      if (errPos>=0)
+        System.out.println(errMsg());
+      return false;
+    }
+
+  //=====================================================================
+  //
+  //  Methods called from parsing procedures
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Initialize processing of a nonterminal or inner expression
+  //-------------------------------------------------------------------
+  protected void begin(final String name)
+    { push(name); }
+
+  protected void begin(final String name,final String diag)
+    { push(diag); }
+
+  //-------------------------------------------------------------------
+  //  Accept Rule
+  //  Note: error info is upgraded to 'expected R' as in ParserBase.
+  //-------------------------------------------------------------------
+  protected boolean accept()
+    {
+      top--;
+      upgrade();
+      if (stream!=null && top==1) commit();
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Accept Inner
+  //-------------------------------------------------------------------
+  protected boolean acceptInner()
+    {
+      top--;
+      passedCut = cuts[top];
+      if (stream!=null && top==1) commit();
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Accept Atomic: there is no Phrase to attach.
+  //-------------------------------------------------------------------
+  protected boolean acceptAtomic()
+    { return acceptInner(); }
+
+  //-------------------------------------------------------------------
+  //  Accept And-predicate (argument was accepted)
+  //  Note: we ignore all failures encountered in processing the argument.
+  //-------------------------------------------------------------------
+  protected boolean acceptAnd()
+    {
+      top--;
+      restore();
+      pos = start[top];
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Accept Not-predicate (argument was rejected)
+  //  Note: we ignore all failures encountered in processing the argument.
+  //-------------------------------------------------------------------
+  protected boolean acceptNot()
+    {
+      top--;
+      restore();
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Reject Rule
+  //-------------------------------------------------------------------
+  protected boolean reject()
+    {
+      top--;
+      pos = start[top];
+      upgrade();
+      return false;
+    }
+
+  //-------------------------------------------------------------------
+  //  Reject Inner
+  //-------------------------------------------------------------------
+  protected boolean rejectInner()
+    {
+      top--;
+      passedCut = cuts[top];
+      pos = start[top];
+      return false;
+    }
+
+  //-------------------------------------------------------------------
+  //  Reject And-predicate (argument was rejected)
+  //  Note: we ignore all failures encountered in processing the argument,
+  //  and register failure at the point of call of the predicate.
+  //-------------------------------------------------------------------
+  protected boolean rejectAnd()
+    {
+      top--;
+      restore();
+      return fail(diag[top]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Reject Not-predicate (argument was accepted)
+  //  Note: we ignore all failures encountered in processing the argument,
+  //  and register failure at the point of call of the predicate.
+  //-------------------------------------------------------------------
+  protected boolean rejectNot()
+    {
+      top--;
+      restore();
+      pos = start[top];
+      return fail(diag[top]);
+    }
+
+
+  //-------------------------------------------------------------------
+  //  Cut: the active procedure passed '^'
+  //-------------------------------------------------------------------
+  protected void cut()
+    { cuts[top-1] = true; }
+
+  //-------------------------------------------------------------------
+  //  Did the alternative that just finished pass a cut?
+  //-------------------------------------------------------------------
+  protected boolean afterCut()
+    { return passedCut; }
+
+
+  //-------------------------------------------------------------------
+  //  Execute expression 'c'
+  //-------------------------------------------------------------------
+  protected boolean next(char ch)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch) { pos++; return true; }
+      else return pos<errPos? false : fail("'" + ch + "'");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ^'c'
+  //-------------------------------------------------------------------
+  protected boolean nextNot(char ch)
+    {
+      if ((pos<endpos || more()) && source.at(pos)!=ch) { pos++; return true; }
+      else return pos<errPos? false : fail("not '" + ch + "'");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &'c', !^'c'
+  //-------------------------------------------------------------------
+  protected boolean ahead(char ch)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch) return true;
+      else return pos<errPos? false : fail("'" + ch + "'");
+    }
+
+  protected boolean aheadNotNot(char ch)  // temporary
+    { return ahead(ch); }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !'c', &^'c'
+  //-------------------------------------------------------------------
+  protected boolean aheadNot(char ch)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch)
+        return pos<errPos? false : fail("not '" + ch + "'");
+      else return true;
+    }
+
+
+  //-------------------------------------------------------------------
+  //  Execute expression "s"
+  //-------------------------------------------------------------------
+  protected boolean next(String s)
+    {
+      if (source.matches(pos,s)) { pos += s.length(); return true; }
+      else return pos<errPos? false : fail("'" + s + "'");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &"s"
+  //-------------------------------------------------------------------
+  protected boolean ahead(String s)
+    {
+      if (source.matches(pos,s)) return true;
+      else return pos<errPos? false : fail("'" + s + "'");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !"s"
+  //-------------------------------------------------------------------
+  protected boolean aheadNot(String s)
+    {
+      if (source.matches(pos,s))
+        return pos<errPos? false : fail("not '" + s + "'");
+      else return true;
+    }
+
+
+  //-------------------------------------------------------------------
+  //  Execute expression [s]
+  //-------------------------------------------------------------------
+  protected boolean nextIn(String s)
+    {
+      if ((pos<endpos || more()) && s.indexOf(source.at(pos))>=0) { pos++; return true; }
+      else return pos<errPos? false : fail("[" + s + "]");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ^[s]
+  //-------------------------------------------------------------------
+  protected boolean nextNotIn(String s)
+    {
+      if ((pos<endpos || more()) && s.indexOf(source.at(pos))<0) { pos++; return true; }
+      else return pos<errPos? false : fail("not [" + s + "]");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &[s], !^[s]
+  //-------------------------------------------------------------------
+  protected boolean aheadIn(String s)
+    {
+      if ((pos<endpos || more()) && s.indexOf(source.at(pos))>=0) return true;
+      else return pos<errPos? false : fail("[" + s + "]");
+    }
+
+  protected boolean aheadNotNotIn(String s) // temporary
+    { return aheadIn(s); }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ![s], &^[s]
+  //-------------------------------------------------------------------
+  protected boolean aheadNotIn(String s)
+    {
+      if ((pos<endpos || more()) && s.indexOf(source.at(pos))>=0)
+        return pos<errPos? false : fail("not [" + s + "]");
+      else return true;
+    }
+
+
+  //-------------------------------------------------------------------
+  //  Execute expression [a-z]
+  //-------------------------------------------------------------------
+  protected boolean nextIn(char a, char z)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        { pos++; return true; }
+      else return pos<errPos? false : fail("[" + a + "-" + z + "]");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &[a-z]
+  //-------------------------------------------------------------------
+  protected boolean aheadIn(char a, char z)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        return true;
+      else return pos<errPos? false : fail("[" + a + "-" + z + "]");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ![a-z]
+  //-------------------------------------------------------------------
+  protected boolean aheadNotIn(char a, char z)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        return pos<errPos? false : fail("not [" + a + "-" + z + "]");
+      else return true;
+    }
+
+
+  //-------------------------------------------------------------------
+  //  Execute expression _
+  //-------------------------------------------------------------------
+  protected boolean next()
+    {
+      if ((pos<endpos || more())) { pos++; return true; }
+      else return fail("any character");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &_
+  //-------------------------------------------------------------------
+  protected boolean ahead()
+    {
+      if ((pos<endpos || more())) return true;
+      else return fail("any character");
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !_
+  //-------------------------------------------------------------------
+  protected boolean aheadNot()
+    {
+      if ((pos<endpos || more())) return fail("end of text");
+      else return true;
+    }
+
+
+  //=====================================================================
+  //
+  //  Terminals identified by number
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  The methods below are called by parsers generated by Mouse 1.7.
+  //  Argument 't' is the number of the terminal, used to find its
+  //  diagnostic text in 'terms' only if the terminal fails.
+  //
+  //  Execute expression 'c'
+  //-------------------------------------------------------------------
+  protected boolean next(char ch, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch) { pos++; return true; }
+      else return pos<errPos? false : fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ^'c'
+  //-------------------------------------------------------------------
+  protected boolean nextNot(char ch, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)!=ch) { pos++; return true; }
+      else return pos<errPos? false : fail(not(t));
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &'c', !^'c'
+  //-------------------------------------------------------------------
+  protected boolean ahead(char ch, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch) return true;
+      else return pos<errPos? false : fail(terms[t]);
+    }
+
+  protected boolean aheadNotNot(char ch, int t)
+    { return ahead(ch,t); }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !'c', &^'c'
+  //-------------------------------------------------------------------
+  protected boolean aheadNot(char ch, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)==ch) return pos<errPos? false : fail(not(t));
+      else return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression "s"
+  //-------------------------------------------------------------------
+  protected boolean next(String s, int t)
+    {
+      if (source.matches(pos,s)) { pos += s.length(); return true; }
+      else return pos<errPos? false : fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &"s"
+  //-------------------------------------------------------------------
+  protected boolean ahead(String s, int t)
+    {
+      if (source.matches(pos,s)) return true;
+      else return pos<errPos? false : fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !"s"
+  //-------------------------------------------------------------------
+  protected boolean aheadNot(String s, int t)
+    {
+      if (source.matches(pos,s)) return pos<errPos? false : fail(not(t));
+      else return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression [s] using table 'set' of its characters
+  //-------------------------------------------------------------------
+  protected boolean nextIn(final long[] set, int t)
+    {
+      if ((pos<endpos || more()) && ParserBase.in(set,source.at(pos))) { pos++; return true; }
+      else return pos<errPos? false : fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean nextNotIn(final long[] set, int t)
+    {
+      if ((pos<endpos || more()) && !ParserBase.in(set,source.at(pos))) { pos++; return true; }
+      else return pos<errPos? false : fail(not(t));
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &[s], !^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean aheadIn(final long[] set, int t)
+    {
+      if ((pos<endpos || more()) && ParserBase.in(set,source.at(pos))) return true;
+      else return pos<errPos? false : fail(terms[t]);
+    }
+
+  protected boolean aheadNotNotIn(final long[] set, int t)
+    { return aheadIn(set,t); }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ![s], &^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean aheadNotIn(final long[] set, int t)
+    {
+      if ((pos<endpos || more()) && ParserBase.in(set,source.at(pos)))
+        return pos<errPos? false : fail(not(t));
+      else return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression [a-z]
+  //-------------------------------------------------------------------
+  protected boolean nextIn(char a, char z, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        { pos++; return true; }
+      else return pos<errPos? false : fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &[a-z]
+  //-------------------------------------------------------------------
+  protected boolean aheadIn(char a, char z, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        return true;
+      else return pos<errPos? false : fail(terms[t]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ![a-z]
+  //-------------------------------------------------------------------
+  protected boolean aheadNotIn(char a, char z, int t)
+    {
+      if ((pos<endpos || more()) && source.at(pos)>=a && source.at(pos)<=z)
+        return pos<errPos? false : fail(not(t));
+      else return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Loops over single characters that end with a terminal,
+  //  as in ParserBase. Expression 'e' is _ if 'set' is null,
+  //  otherwise ^[s] with table 'set' and number 'u'.
+  //
+  //  Execute expression (!"s" e)*
+  //-------------------------------------------------------------------
+  protected boolean skipTo(String s, int t, final long[] set, int u)
+    {
+      scan(s,null,set);
+      if (pos<endpos && source.matches(pos,s)) fail(not(t));
+      else fail(set==null? "any character" : not(u));
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression (![s] e)* using table 'stop' for [s]
+  //-------------------------------------------------------------------
+  protected boolean skipTo(final long[] stop, int t, final long[] set, int u)
+    {
+      scan(null,stop,set);
+      if (pos<endpos && ParserBase.in(stop,source.at(pos))) fail(not(t));
+      else fail(set==null? "any character" : not(u));
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression e*+ "s"
+  //-------------------------------------------------------------------
+  protected boolean nextUntil(String s, int t, final long[] set, int u)
+    {
+      int start = pos;
+      scan(s,null,set);
+      if (pos<endpos && source.matches(pos,s))
+        return until(start,s.length(),t);
+      fail(terms[t]);
+      return fail(set==null? "any character" : not(u));
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression e*+ [s] using table 'stop' for [s]
+  //-------------------------------------------------------------------
+  protected boolean nextUntil(final long[] stop, int t, final long[] set, int u)
+    {
+      int start = pos;
+      scan(null,stop,set);
+      if (pos<endpos && ParserBase.in(stop,source.at(pos)))
+        return until(start,1,t);
+      fail(terms[t]);
+      return fail(set==null? "any character" : not(u));
+    }
+
+  //-------------------------------------------------------------------
+  //  Loop e*+ "s" that started at 'start' found "s" of length 'n'
+  //  at 'pos'. Register the failure of "s" just before, consume "s".
+  //-------------------------------------------------------------------
+  private boolean until(int start, int n, int t)
+    {
+      if (pos>start)
+      {
+        pos--;
+        fail(terms[t]);
+        pos++;
+      }
+      pos += n;
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Advance 'pos' to the first position where "s" (or [s] given
+  //  by table 'stop') is found, or 'e' fails.
+  //-------------------------------------------------------------------
+  private void scan(String s, final long[] stop, final long[] set)
+    {
+      char c = s==null? 0 : s.charAt(0);
+      while (pos<endpos || more())
+      {
+        char ch = source.at(pos);
+        if (s!=null? ch==c && source.matches(pos,s) : ParserBase.in(stop,ch))
+          break;
+        if (set!=null && ParserBase.in(set,ch)) break;
+        pos++;
+      }
+    }
+
+  //-------------------------------------------------------------------
+  //  Text 'not ...' for terminal 't'
+  //-------------------------------------------------------------------
+  private String not(int t)
+    {
+      if (termsNot==null) termsNot = new String[terms.length];
+      if (termsNot[t]==null) termsNot[t] = "not " + terms[t];
+      return termsNot[t];
+    }
+
+
+  //-------------------------------------------------------------------
+  //  Get next character, or -1 at end of text (for dispatch)
+  //-------------------------------------------------------------------
+  protected int nextChar()
+    { return (pos<endpos || more())? source.at(pos) : -1; }
+
+  //-------------------------------------------------------------------
+  //  Register failure of expression 'who' that was not called
+  //  because it can not start with the next character.
+  //-------------------------------------------------------------------
+  protected boolean expected(final String who)
+    { return pos<errPos? false : fail(who); }
+
+
+  //-------------------------------------------------------------------
+  //  Read more text from stream to have character at 'pos'.
+  //-------------------------------------------------------------------
+  private boolean more()
+    {
+      if (stream==null) return false;
+      boolean has = stream.fill(pos);
+      endpos = stream.end();
+      return has;
+    }
+
+  //-------------------------------------------------------------------
+  //  Item of the start rule was accepted: release text before 'pos'.
+  //  Failure texts saved by procedures within the item are dropped.
+  //  If the stream says so, subtract 'd' from all positions;
+  //  failures before 'd' can not be reported any more.
+  //-------------------------------------------------------------------
+  private void commit()
+    {
+      if (errFrom>errCnt[0])
+      {
+        int n = errCount - errFrom;
+        System.arraycopy(errTxt,errFrom,errTxt,errCnt[0],n);
+        errFrom = errCnt[0];
+        errCount = errFrom + n;
+      }
+      int d = stream.release(pos);
+      if (d==0) return;
+      pos -= d;
+      endpos -= d;
+      start[0] -= d;
+      if (errAt[0]>=d) errAt[0] -= d;
+      if (errPos>=d) errPos -= d;
+      else
+      {
+        errPos = -1;
+        errFrom = 0;
+        errCount = 0;
+      }
+    }
+
+  //-------------------------------------------------------------------
+  //  Push procedure on parse stack
+  //-------------------------------------------------------------------
+  private void push(final String name)
+    {
+      if (top==start.length)
+      {
+        start = Arrays.copyOf(start,2*top);
+        diag = Arrays.copyOf(diag,2*top);
+        errAt = Arrays.copyOf(errAt,2*top);
+        errBase = Arrays.copyOf(errBase,2*top);
+        errCnt = Arrays.copyOf(errCnt,2*top);
+        cuts = Arrays.copyOf(cuts,2*top);
+      }
+      start[top] = pos;
+      diag[top] = name;
+      errAt[top] = errPos;
+      errBase[top] = errFrom;
+      errCnt[top] = errCount;
+      cuts[top] = false;
+      top++;
+    }
+
+  //-------------------------------------------------------------------
+  //  Forget failures registered after procedure 'top' started
+  //-------------------------------------------------------------------
+  private void restore()
+    {
+      errPos = errAt[top];
+      errFrom = errBase[top];
+      errCount = errCnt[top];
+    }
+
+  //-------------------------------------------------------------------
+  //  Upgrade error info of procedure 'top' that failed at its start
+  //  to 'expected <diag>'. Keep failures registered at the same
+  //  position before it started.
+  //-------------------------------------------------------------------
+  private void upgrade()
+    {
+      if (errPos!=start[top]) return;
+      if (errAt[top]!=errPos)
+        errCount = errFrom;
+      else if (errCount>errCnt[top])
+        errCount = errCnt[top];
+      else return;                      // No failure of its own
+      add(diag[top]);
+    }
+
+  //-------------------------------------------------------------------
+  //  Register failure of 'who' at current position.
+  //  Texts for a newer position are placed after those saved
+  //  by the active procedure, which may still restore them.
+  //-------------------------------------------------------------------
+  private boolean fail(final String who)
+    {
+      if (noErrors) return false;       // If no error info: forget
+      if (errPos>pos) return false;     // If current position older: forget
+      if (errPos<pos)                   // If current position newer: replace
+      {
+        errPos = pos;
+        errFrom = top>0? errCnt[top-1] : 0;
+        errCount = errFrom;
+      }
+      add(who);
+      return false;
+    }
+
+  private void add(final String who)
+    {
+      if (errCount==errTxt.length)
+        errTxt = Arrays.copyOf(errTxt,2*errCount);
+      errTxt[errCount++] = who;
+    }
+}
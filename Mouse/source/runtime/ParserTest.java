@@ -32,6 +32,13 @@
 //    111105 Revised methods for ^[s] and ^[c].
 //   Version 1.6
 //    130416 Removed code allowing m=0 (is now allowed in superclass).
+//   Version 1.7
+//    261017 Removed own 'cacheSize' and 'setMemo' that hid those
+//           of superclass, so that the Caches use the value set.
+//    261017 Added methods for terminals identified by number.
+//    261017 Saved subexpression of a transient Rule is not reused
+//           outside such Rule.
+//    261017 Added 'acceptAtomic' with Cache argument.
 //
 //=========================================================================
 
@@ -48,11 +55,6 @@ import java.util.BitSet;
 
 public class ParserTest extends ParserMemo
 {
-  //-------------------------------------------------------------------
-  //  Cache size.
-  //-------------------------------------------------------------------
-  int cacheSize = 1;
-
   //-------------------------------------------------------------------
   //  Trace switches.
   //-------------------------------------------------------------------
@@ -66,15 +68,6 @@ public class ParserTest extends ParserMemo
   protected ParserTest()
     {}
 
-  //-------------------------------------------------------------------
-  //  Set cache size.
-  //-------------------------------------------------------------------
-  public void setMemo(int m)
-    {
-      if (m<0 | m>9) throw new Error("m=" + m + " outside range 0-9");
-      cacheSize = m;
-    }
-
   //-------------------------------------------------------------------
   //  Set trace
   //-------------------------------------------------------------------
@@ -136,6 +129,8 @@ public class ParserTest extends ParserMemo
       c.calls++;
       if (traceInner) trace(source.where(pos) + ": INIT " + c.name);
       reuse = c.find();
+      if (reuse!=null && reuse.lean && !current.lean)
+        reuse = null;                  // Saved without right-hand side
       if (reuse!=null)
       {
         c.reuse++;
@@ -171,6 +166,16 @@ public class ParserTest extends ParserMemo
       return true;
     }
 
+  //-------------------------------------------------------------------
+  //  Accept Atomic
+  //-------------------------------------------------------------------
+  protected boolean acceptAtomic(Cache c)
+    {
+      super.acceptAtomic();
+      traceAccept(c,traceInner);
+      return true;
+    }
+
   //-------------------------------------------------------------------
   //  Accept And-predicate (argument was accepted)
   //-------------------------------------------------------------------
@@ -455,6 +460,153 @@ public class ParserTest extends ParserMemo
     }
 
 
+  //-------------------------------------------------------------------
+  //  Execute expression 'c', terminal identified by number 't'
+  //-------------------------------------------------------------------
+  protected boolean next(char ch, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.next(ch,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ^'c'
+  //-------------------------------------------------------------------
+  protected boolean nextNot(char ch, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.nextNot(ch,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &'c', !^'c'
+  //-------------------------------------------------------------------
+  protected boolean ahead(char ch, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.ahead(ch,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  protected boolean aheadNotNot(char ch, int t, Cache c)
+    { return ahead(ch,t,c); }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !'c', &^'c'
+  //-------------------------------------------------------------------
+  protected boolean aheadNot(char ch, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.aheadNot(ch,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression "s"
+  //-------------------------------------------------------------------
+  protected boolean next(String s, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.next(s,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &"s"
+  //-------------------------------------------------------------------
+  protected boolean ahead(String s, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.ahead(s,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression !"s"
+  //-------------------------------------------------------------------
+  protected boolean aheadNot(String s, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.aheadNot(s,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression [s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean nextIn(final long[] set, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.nextIn(set,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean nextNotIn(final long[] set, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.nextNotIn(set,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &[s], !^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean aheadIn(final long[] set, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.aheadIn(set,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  protected boolean aheadNotNotIn(final long[] set, int t, Cache c)
+    { return aheadIn(set,t,c); }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ![s], &^[s] using table 'set'
+  //-------------------------------------------------------------------
+  protected boolean aheadNotIn(final long[] set, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.aheadNotIn(set,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression [a-z]
+  //-------------------------------------------------------------------
+  protected boolean nextIn(char a, char z, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.nextIn(a,z,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression &[a-z]
+  //-------------------------------------------------------------------
+  protected boolean aheadIn(char a, char z, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.aheadIn(a,z,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Execute expression ![a-z]
+  //-------------------------------------------------------------------
+  protected boolean aheadNotIn(char a, char z, int t, Cache c)
+    {
+      int endpos = pos;
+      boolean succ = super.aheadNotIn(a,z,t);
+      return traceTerm(endpos,succ,c);
+    }
+
+
   //-------------------------------------------------------------------
   //  Trace term
   //-------------------------------------------------------------------
@@ -25,6 +25,10 @@
 //    111004 Added method 'where'.
 //   Version 1.5
 //    111104 Added methods 'rule' and 'isTerm'.
+//   Version 1.7
+//    261017 Added methods 'line' and 'column'.
+//    261017 'line' and 'column' made default methods, so that
+//           own implementations of Phrase need not define them.
 //
 //=========================================================================
 
@@ -94,4 +98,15 @@ public interface Phrase
   //-------------------------------------------------------------------
   String where(int i);
 
+  //-------------------------------------------------------------------
+  //  Line and column of i-th character of the Phrase in source text,
+  //  numbered starting with 1. The default is for implementations
+  //  written before these methods were added.
+  //-------------------------------------------------------------------
+  default int line(int i)
+    { throw new UnsupportedOperationException("line"); }
+
+  default int column(int i)
+    { throw new UnsupportedOperationException("column"); }
+
 }
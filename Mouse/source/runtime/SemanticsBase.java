@@ -22,6 +22,8 @@
 //    090701 License changed by the author to Apache v.2.
 //    090717 Interface 'Parser' renamed to 'CurrentRule'.
 //    090810 Name changed from 'Semantics'.
+//  Version 1.7
+//    261017 Added 'item'.
 //
 //=========================================================================
 
@@ -68,6 +70,23 @@ public class SemanticsBase
     {}
 
 
+  //=====================================================================
+  //
+  //  Items of the start rule.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Invoked for each Phrase accepted as a part of the start rule,
+  //  after its semantic action, if the parser was generated with
+  //  option -i or reads a SourceStream. The Phrase is then removed
+  //  from the right-hand side of the start rule, so the action
+  //  of the start rule does not see it.
+  //  You can override it to process items while parsing goes on.
+  //-------------------------------------------------------------------
+  public void item(Phrase p)
+    {}
+
+
   //=====================================================================
   //
   //  Methods to be invoked from semantic actions.
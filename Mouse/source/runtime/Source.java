@@ -21,6 +21,10 @@
 //  Change log
 //    090701 License changed by the author to Apache v.2.
 //    090810 Package name changed.
+//   Version 1.7
+//    261017 Added method 'matches'.
+//    261017 'matches' made a default method, so that own
+//           implementations of Source need not define it.
 //
 //=========================================================================
 
@@ -66,6 +70,20 @@ public interface Source
   //-------------------------------------------------------------------
   String at(int p, int q);
 
+  //-------------------------------------------------------------------
+  //  Do characters starting at position p match the string s?
+  //  (Returns false if the text ends before s.)
+  //  The wrappers in this package override it to compare
+  //  without calling 'at' for each character.
+  //-------------------------------------------------------------------
+  default boolean matches(int p, final String s)
+    {
+      if (p+s.length()>end()) return false;
+      for (int i=0;i<s.length();i++)
+        if (at(p+i)!=s.charAt(i)) return false;
+      return true;
+    }
+
   //-------------------------------------------------------------------
   //  Describes position p in user's terms.
   //-------------------------------------------------------------------
@@ -0,0 +1,204 @@
+//=========================================================================
+//
+//  Part of PEG parser generator Mouse.
+//
+//  Copyright (C) 2026 by the Mouse contributors.
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+//-------------------------------------------------------------------------
+//
+//  Change log
+//  Version 1.7
+//   261017 Created.
+//
+//=========================================================================
+
+package mouse.runtime;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.channels.*;
+
+
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+//
+//  Wrapper for parser input in the form of a file in a single-byte
+//  encoding: US-ASCII or ISO-8859-1 (Latin-1).
+//  The file is memory-mapped and characters are read directly from
+//  the mapped bytes: there is no decoding pass and no copy of the text.
+//
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+public class SourceBytes implements Source, SourceLines
+{
+  //=====================================================================
+  //
+  //  Data.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  The file.
+  //-------------------------------------------------------------------
+  private File f;
+
+  //-------------------------------------------------------------------
+  //  Memory-mapped file.
+  //-------------------------------------------------------------------
+  private MappedByteBuffer bytes;
+  private int size;
+
+  //-------------------------------------------------------------------
+  //  Start positions of lines, built when first needed.
+  //-------------------------------------------------------------------
+  private LineIndex lines = null;
+
+  //-------------------------------------------------------------------
+  //  Success indicator.
+  //-------------------------------------------------------------------
+  private boolean created = false;
+
+
+  //=====================================================================
+  //
+  //  Constructor. Wraps the file identified by 'fileName'
+  //  in encoding 'cs', which must be US-ASCII or ISO-8859-1.
+  //
+  //=====================================================================
+  public SourceBytes(final String fileName, final Charset cs)
+    {
+      if (!isSingleByte(cs))
+        throw new Error("SourceBytes can not be used for " + cs.name());
+      try
+      {
+        // Get a Channel for the source file
+        f = new File(fileName);
+        FileInputStream fis = new FileInputStream(f);
+        FileChannel fc = fis.getChannel();
+
+        // Map the file; the mapping remains valid after close
+        bytes = fc.map(FileChannel.MapMode.READ_ONLY, 0, (int)fc.size());
+        size = bytes.limit();
+        fis.close();
+
+        // Check that all bytes are ASCII, as CharsetDecoder would
+        if (cs.name().equals("US-ASCII"))
+          for (int p=0;p<size;p++)
+            if (bytes.get(p)<0)
+            {
+              System.err.println("Error in file '" + fileName + "' "
+                                 + "byte at position " + p + " is not ASCII");
+              return;
+            }
+
+        created = true;
+      }
+      catch (FileNotFoundException e)
+      { System.err.println("File '" + fileName + "' was not found."); }
+      catch (IOException e)
+      { System.err.println("Error in file '" + fileName + "' " + e.getMessage()); }
+    }
+
+  //-------------------------------------------------------------------
+  //  Can SourceBytes be used for encoding 'cs'?
+  //-------------------------------------------------------------------
+  public static boolean isSingleByte(final Charset cs)
+    {
+      String name = cs.name();
+      return name.equals("US-ASCII") || name.equals("ISO-8859-1");
+    }
+
+
+  //=====================================================================
+  //
+  //  Interface methods.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Is the wrapper correctly initialized?
+  //-------------------------------------------------------------------
+  public boolean created()
+    { return created; }
+
+  //-------------------------------------------------------------------
+  //  Returns end position.
+  //-------------------------------------------------------------------
+  public int end()
+    { return size; }
+
+  //-------------------------------------------------------------------
+  //  Returns character at position p.
+  //-------------------------------------------------------------------
+  public char at(int p)
+    { return (char)(bytes.get(p) & 0xff); }
+
+  //-------------------------------------------------------------------
+  //  Returns characters at positions p through q-1.
+  //-------------------------------------------------------------------
+  public String at(int p, int q)
+    {
+      char[] c = new char[q-p];
+      for (int i=p;i<q;i++)
+        c[i-p] = (char)(bytes.get(i) & 0xff);
+      return new String(c);
+    }
+
+  //-------------------------------------------------------------------
+  //  Do characters starting at position p match the string s?
+  //-------------------------------------------------------------------
+  public boolean matches(int p, final String s)
+    {
+      int n = s.length();
+      if (p+n>size) return false;
+      for (int i=0;i<n;i++)
+        if ((bytes.get(p+i) & 0xff)!=s.charAt(i)) return false;
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Describes position p in terms of line and column number.
+  //  Lines and columns are numbered starting with 1.
+  //-------------------------------------------------------------------
+  public String where(int p)
+    { return lines().where(p); }
+
+  //=====================================================================
+  //
+  //  File-specific methods.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Returns the file object.
+  //-------------------------------------------------------------------
+  public File file()
+    { return f; }
+
+  //-------------------------------------------------------------------
+  //  Returns line index of the file, for line and column numbers.
+  //-------------------------------------------------------------------
+  public LineIndex lines()
+    {
+      if (lines==null) lines = new LineIndex(this);
+      return lines;
+    }
+
+  //-------------------------------------------------------------------
+  //  Line and column of position p (interface SourceLines).
+  //-------------------------------------------------------------------
+  public long line(int p)
+    { return lines().line(p); }
+
+  public long column(int p)
+    { return lines().column(p); }
+}
@@ -31,6 +31,12 @@
 //   Version 1.3.1
 //    110113 In 'where()': changed condition for return from <= < to < <=.
 //           (Bug fix for endless loop if p = end of file.)
+//   Version 1.7
+//    261017 Implemented 'matches' without copying the text.
+//    261017 'where' uses LineIndex instead of scanning the text.
+//           Added method 'lines'.
+//    261017 Added constructor with character encoding as argument.
+//    261017 Implements SourceLines.
 //
 //=========================================================================
 
@@ -45,11 +51,13 @@ import java.nio.channels.*;
 //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
 //
 //  Wrapper for parser input in the form of a file.
-//  Maps the entire file into a String using default character encoding.
+//  Maps the entire file into a String using default character encoding
+//  or the encoding given to the constructor.
+//  (For US-ASCII or ISO-8859-1, SourceBytes avoids decoding the file.)
 //
 //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
 
-public class SourceFile implements Source
+public class SourceFile implements Source, SourceLines
 {
   //=====================================================================
   //
@@ -67,12 +75,9 @@ public class SourceFile implements Source
   private String text;
 
   //-------------------------------------------------------------------
-  //  Character encoding assumed for the file.
-  //  To use encoding other than default, change as shown
-  //  in the commented-out example.
+  //  Start positions of lines, built when first needed.
   //-------------------------------------------------------------------
-  private static final Charset cs = Charset.defaultCharset();
-  // static final Charset cs = Charset.forName("8859_1");
+  private LineIndex lines = null;
 
   //-------------------------------------------------------------------
   //  Success indicator.
@@ -82,10 +87,14 @@ public class SourceFile implements Source
 
   //=====================================================================
   //
-  //  Constructor. Wraps the file identified by 'fileName'.
+  //  Constructors. Wrap the file identified by 'fileName',
+  //  in default character encoding or in encoding 'cs'.
   //
   //=====================================================================
   public SourceFile(final String fileName)
+    { this(fileName,Charset.defaultCharset()); }
+
+  public SourceFile(final String fileName, final Charset cs)
     {
       try
       {
@@ -141,26 +150,18 @@ public class SourceFile implements Source
   public String at(int p, int q)
     { return text.substring(p,q); }
 
+  //-------------------------------------------------------------------
+  //  Do characters starting at position p match the string s?
+  //-------------------------------------------------------------------
+  public boolean matches(int p, final String s)
+    { return text.startsWith(s,p); }
+
   //-------------------------------------------------------------------
   //  Describes position p in terms of line and column number.
   //  Lines and columns are numbered starting with 1.
   //-------------------------------------------------------------------
   public String where(int p)
-    {
-      int ln = 1;   // Line number
-      int ls = -1;  // Line start (position of preceding newline)
-      int nextnl;   // Position of next newline or end
-
-      while (true)
-      {
-        nextnl = text.indexOf('\n',ls+1);
-        if (nextnl<0) nextnl = text.length();
-        if (ls<p && p<=nextnl)
-          return ("line " + ln + " col. " + (p-ls));
-        ls = nextnl;
-        ln++;
-      }
-    }
+    { return lines().where(p); }
 
   //=====================================================================
   //
@@ -172,4 +173,22 @@ public class SourceFile implements Source
   //-------------------------------------------------------------------
   public File file()
     { return f; }
+
+  //-------------------------------------------------------------------
+  //  Returns line index of the file, for line and column numbers.
+  //-------------------------------------------------------------------
+  public LineIndex lines()
+    {
+      if (lines==null) lines = new LineIndex(text);
+      return lines;
+    }
+
+  //-------------------------------------------------------------------
+  //  Line and column of position p (interface SourceLines).
+  //-------------------------------------------------------------------
+  public long line(int p)
+    { return lines().line(p); }
+
+  public long column(int p)
+    { return lines().column(p); }
 }
@@ -0,0 +1,367 @@
+//=========================================================================
+//
+//  Part of PEG parser generator Mouse.
+//
+//  Copyright (C) 2026 by the Mouse contributors.
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+//-------------------------------------------------------------------------
+//
+//  Change log
+//  Version 1.7
+//   261017 Created.
+//   261017 Column in the first line of a segment counted from the
+//          start of that line in the file, not of the segment.
+//
+//=========================================================================
+
+package mouse.runtime;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.channels.*;
+
+
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+//
+//  SourceLarge
+//
+//-------------------------------------------------------------------------
+//
+//  Parser input from a file that may be larger than 2 GB, in a
+//  single-byte encoding: US-ASCII or ISO-8859-1.
+//
+//  Positions in the parser are 'int', so the file is presented as
+//  a sequence of segments, each a Source of at most 'maxSegment'
+//  characters. A segment ends just after the last occurrence of
+//  'separator' that fits in it: the separator must be the one
+//  that ends records in the grammar. Each segment is then a whole
+//  number of records and can be parsed separately by a grammar
+//  whose start rule is a repetition of records:
+//
+//    SourceLarge big = new SourceLarge(fileName,cs,"\n");
+//    for (Source s=big.next(); s!=null; s=big.next())
+//      if (!parser.parse(s)) ...
+//
+//  Each segment is mapped into memory when it is obtained, so only
+//  one segment needs to be in memory at a time. 'where' describes
+//  positions by line and column in the whole file.
+//  Note that the parser calls 'init' of semantics for each segment.
+//
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+public class SourceLarge
+{
+  //=====================================================================
+  //
+  //  Data.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Default maximum size of a segment.
+  //-------------------------------------------------------------------
+  public static final int MAX_SEGMENT = 1<<30;
+
+  //-------------------------------------------------------------------
+  //  The file.
+  //-------------------------------------------------------------------
+  private File f;
+  private FileChannel fc;
+  private long size;
+  private boolean ascii;
+
+  //-------------------------------------------------------------------
+  //  Record separator and maximum size of segment.
+  //-------------------------------------------------------------------
+  private final String sep;
+  private final int maxSegment;
+
+  //-------------------------------------------------------------------
+  //  Last segment returned by 'next', and the file position,
+  //  line and column where the next segment starts.
+  //-------------------------------------------------------------------
+  private Segment last = null;
+  private long base = 0;
+  private long line = 1;
+  private long column = 1;
+
+  //-------------------------------------------------------------------
+  //  Success indicator.
+  //-------------------------------------------------------------------
+  private boolean created = false;
+
+
+  //=====================================================================
+  //
+  //  Constructors. Wrap the file identified by 'fileName' in encoding
+  //  'cs', which must be US-ASCII or ISO-8859-1, to be divided after
+  //  'separator' into segments of at most 'maxSegment' characters.
+  //
+  //=====================================================================
+  public SourceLarge(final String fileName, final Charset cs,
+                     final String separator)
+    { this(fileName,cs,separator,MAX_SEGMENT); }
+
+  public SourceLarge(final String fileName, final Charset cs,
+                     final String separator, int maxSegment)
+    {
+      if (!SourceBytes.isSingleByte(cs))
+        throw new Error("SourceLarge can not be used for " + cs.name());
+      if (separator.length()==0 || separator.length()>maxSegment)
+        throw new Error("separator '" + separator + "' is not valid");
+      sep = separator;
+      this.maxSegment = maxSegment;
+      ascii = cs.name().equals("US-ASCII");
+      try
+      {
+        f = new File(fileName);
+        fc = new FileInputStream(f).getChannel();
+        size = fc.size();
+        created = true;
+      }
+      catch (FileNotFoundException e)
+      { System.err.println("File '" + fileName + "' was not found."); }
+      catch (IOException e)
+      { System.err.println("Error in file '" + fileName + "' " + e.getMessage()); }
+    }
+
+
+  //=====================================================================
+  //
+  //  Access.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Is the wrapper correctly initialized?
+  //  (Becomes false after an error in 'next'.)
+  //-------------------------------------------------------------------
+  public boolean created()
+    { return created; }
+
+  //-------------------------------------------------------------------
+  //  Size of the file.
+  //-------------------------------------------------------------------
+  public long size()
+    { return size; }
+
+  //-------------------------------------------------------------------
+  //  Returns the file object.
+  //-------------------------------------------------------------------
+  public File file()
+    { return f; }
+
+  //-------------------------------------------------------------------
+  //  Returns next segment, or null after the last one or on error.
+  //-------------------------------------------------------------------
+  public Source next()
+    {
+      if (!created) return null;
+
+      if (last!=null)              // Advance past last segment
+      {
+        base += last.size;
+        line += last.newlines();
+        int s = last.lastLine();
+        column = s>0? 1 + last.size - s : column + last.size;
+        last = null;
+      }
+
+      if (base>=size)              // End of file
+      {
+        close();
+        return null;
+      }
+
+      try
+      {
+        int len = (int)Math.min(maxSegment,size-base);
+        MappedByteBuffer buf =
+            fc.map(FileChannel.MapMode.READ_ONLY, base, len);
+
+        if (base+len<size)         // Not last: end after separator
+        {
+          int n = sep.length();
+          int p = len - n;
+          while (p>=0 && !matches(buf,p,sep)) p--;
+          if (p<0)
+          {
+            StringBuilder sb = new StringBuilder();
+            ParserBase.toPrint(sep,sb);
+            error("no '" + sb + "' within " + maxSegment
+                  + " bytes after position " + base);
+            return null;
+          }
+          len = p + n;
+        }
+
+        if (ascii)
+          for (int p=0;p<len;p++)
+            if (buf.get(p)<0)
+            {
+              error("byte at position " + (base+p) + " is not ASCII");
+              return null;
+            }
+
+        last = new Segment(buf,len,base,line,column);
+        return last;
+      }
+      catch (IOException e)
+      {
+        error(e.getMessage());
+        return null;
+      }
+    }
+
+  //-------------------------------------------------------------------
+  //  Report error and stop.
+  //-------------------------------------------------------------------
+  private void error(final String msg)
+    {
+      System.err.println("Error in file '" + f.getPath() + "' " + msg);
+      close();
+      created = false;
+    }
+
+  //-------------------------------------------------------------------
+  //  Close the channel.
+  //-------------------------------------------------------------------
+  private void close()
+    {
+      try {fc.close();}
+      catch (IOException e) {}
+    }
+
+  //-------------------------------------------------------------------
+  //  Do bytes starting at p in 'buf' match string s?
+  //-------------------------------------------------------------------
+  private static boolean matches(ByteBuffer buf, int p, final String s)
+    {
+      for (int i=0;i<s.length();i++)
+        if ((buf.get(p+i) & 0xff)!=s.charAt(i)) return false;
+      return true;
+    }
+
+
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+  //
+  //  Segment
+  //
+  //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+  public static class Segment implements Source, SourceLines
+  {
+    final MappedByteBuffer bytes;
+    final int size;
+    final long offset;             // Position of segment in file
+    final long firstLine;          // Line number at its start
+    final long firstColumn;        // Column number at its start
+    LineIndex lines = null;
+
+    Segment(MappedByteBuffer bytes, int size, long offset,
+            long firstLine, long firstColumn)
+      {
+        this.bytes = bytes;
+        this.size = size;
+        this.offset = offset;
+        this.firstLine = firstLine;
+        this.firstColumn = firstColumn;
+      }
+
+    //-----------------------------------------------------------------
+    //  Interface methods.
+    //-----------------------------------------------------------------
+    public boolean created()
+      { return true; }
+
+    public int end()
+      { return size; }
+
+    public char at(int p)
+      { return (char)(bytes.get(p) & 0xff); }
+
+    public String at(int p, int q)
+      {
+        char[] c = new char[q-p];
+        for (int i=p;i<q;i++)
+          c[i-p] = (char)(bytes.get(i) & 0xff);
+        return new String(c);
+      }
+
+    public boolean matches(int p, final String s)
+      {
+        if (p+s.length()>size) return false;
+        return SourceLarge.matches(bytes,p,s);
+      }
+
+    //-----------------------------------------------------------------
+    //  Describes position p by line and column in the whole file.
+    //-----------------------------------------------------------------
+    public String where(int p)
+      { return "line " + line(p) + " col. " + column(p); }
+
+    //-----------------------------------------------------------------
+    //  Line and column of position p in the whole file.
+    //  The segment may start inside a line: on its first line,
+    //  the column is counted from 'firstColumn'.
+    //-----------------------------------------------------------------
+    public long line(int p)
+      { return firstLine + lines().line(p) - 1; }
+
+    public long column(int p)
+      {
+        if (lines().line(p)==1) return firstColumn + p;
+        return lines().column(p);
+      }
+
+    //-----------------------------------------------------------------
+    //  Line index of the segment, built when first needed.
+    //-----------------------------------------------------------------
+    private LineIndex lines()
+      {
+        if (lines==null) lines = new LineIndex(this);
+        return lines;
+      }
+
+    //-----------------------------------------------------------------
+    //  Position of the segment in the file.
+    //-----------------------------------------------------------------
+    public long offset()
+      { return offset; }
+
+    //-----------------------------------------------------------------
+    //  Number of newlines in the segment.
+    //-----------------------------------------------------------------
+    long newlines()
+      {
+        if (lines!=null) return lines.lines() - 1;
+        long n = 0;
+        for (int p=0;p<size;p++)
+          if (bytes.get(p)=='\n') n++;
+        return n;
+      }
+
+    //-----------------------------------------------------------------
+    //  Position where the last line of the segment starts,
+    //  or 0 if the segment has no newline.
+    //-----------------------------------------------------------------
+    int lastLine()
+      {
+        if (lines!=null) return lines.lineStart(lines.lines());
+        int p = size;
+        while (p>0 && bytes.get(p-1)!='\n') p--;
+        return p;
+      }
+  }
+}
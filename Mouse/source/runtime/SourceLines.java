@@ -0,0 +1,52 @@
+//=========================================================================
+//
+//  Part of PEG parser generator Mouse.
+//
+//  Copyright (C) 2026 by the Mouse contributors.
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+//-------------------------------------------------------------------------
+//
+//  Change log
+//  Version 1.7
+//   261017 Created.
+//
+//=========================================================================
+
+package mouse.runtime;
+
+
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+//
+//  SourceLines
+//
+//-------------------------------------------------------------------------
+//
+//  Line and column numbers of positions in a source text, as used
+//  by 'line' and 'column' of Phrase. A Source that keeps its own
+//  line index, or knows where its text is in a larger file,
+//  implements this interface; for other sources, the parser
+//  builds a LineIndex of the text.
+//
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+public interface SourceLines
+{
+  //-------------------------------------------------------------------
+  //  Line and column of position p, numbered starting with 1,
+  //  as shown by 'where'.
+  //-------------------------------------------------------------------
+  long line(int p);
+  long column(int p);
+}
@@ -0,0 +1,257 @@
+//=========================================================================
+//
+//  Part of PEG parser generator Mouse.
+//
+//  Copyright (C) 2026 by the Mouse contributors.
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+//-------------------------------------------------------------------------
+//
+//  Change log
+//  Version 1.7
+//   261017 Created.
+//
+//=========================================================================
+
+package mouse.runtime;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+//
+//  SourceStream
+//
+//-------------------------------------------------------------------------
+//
+//  Parser input from a stream of unknown length, such as a log tail
+//  or a socket. Characters are read into a buffer when the parser
+//  needs them; 'end' is the position after the last character read
+//  so far, and the parser calls 'fill' when it reaches that position.
+//
+//  The parser tells by 'release' which characters it will not need
+//  any more: this is done after each item of the start rule, which
+//  should have the form Item* (or Item* !_). The buffer keeps only
+//  the characters after the last released position, so its size
+//  depends on the longest item, not on the length of the stream.
+//  When positions become large, 'release' makes the parser subtract
+//  the released amount from its positions, so they never overflow.
+//
+//  The start rule must not backtrack over an accepted item.
+//  Its Phrase does not keep the items, and the text of released
+//  items is not available.
+//
+//HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
+
+public class SourceStream implements Source, SourceLines
+{
+  //=====================================================================
+  //
+  //  Data.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  The stream.
+  //-------------------------------------------------------------------
+  private final Reader reader;
+  private boolean eof = false;
+
+  //-------------------------------------------------------------------
+  //  Buffer: 'len' characters, the first at position 'base'.
+  //  Characters before 'keep' may be dropped.
+  //-------------------------------------------------------------------
+  private char[] buf = new char[8192];
+  private int base = 0;
+  private int len = 0;
+  private int keep = 0;
+
+  //-------------------------------------------------------------------
+  //  Position subtracted by the parser so far; line number and
+  //  column of the first character in buffer.
+  //-------------------------------------------------------------------
+  private long offset = 0;
+  private long line = 1;
+  private long column = 1;
+
+  //-------------------------------------------------------------------
+  //  Released position at which the parser's positions are shifted.
+  //-------------------------------------------------------------------
+  int rebase = 1<<30;
+
+
+  //=====================================================================
+  //
+  //  Constructors.
+  //
+  //=====================================================================
+  public SourceStream(final Reader r)
+    { reader = r; }
+
+  public SourceStream(final InputStream in, final Charset cs)
+    { reader = new InputStreamReader(in,cs); }
+
+  public SourceStream(final ReadableByteChannel ch, final Charset cs)
+    { reader = Channels.newReader(ch,cs.newDecoder(),-1); }
+
+
+  //=====================================================================
+  //
+  //  Interface methods.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Is the wrapper correctly initialized?
+  //-------------------------------------------------------------------
+  public boolean created()
+    { return true; }
+
+  //-------------------------------------------------------------------
+  //  Returns position after the last character read so far.
+  //-------------------------------------------------------------------
+  public int end()
+    { return base+len; }
+
+  //-------------------------------------------------------------------
+  //  Returns character at position p (which must have been read).
+  //-------------------------------------------------------------------
+  public char at(int p)
+    { return buf[p-base]; }
+
+  //-------------------------------------------------------------------
+  //  Returns characters at positions p through q-1.
+  //-------------------------------------------------------------------
+  public String at(int p, int q)
+    {
+      if (q<=p) return "";
+      fill(q-1);
+      return new String(buf,p-base,q-p);
+    }
+
+  //-------------------------------------------------------------------
+  //  Do characters starting at position p match the string s?
+  //-------------------------------------------------------------------
+  public boolean matches(int p, final String s)
+    {
+      int n = s.length();
+      if (!fill(p+n-1)) return false;
+      for (int i=0;i<n;i++)
+        if (buf[p-base+i]!=s.charAt(i)) return false;
+      return true;
+    }
+
+  //-------------------------------------------------------------------
+  //  Describes position p in terms of line and column number
+  //  in the whole stream.
+  //-------------------------------------------------------------------
+  public String where(int p)
+    { return "line " + line(p) + " col. " + column(p); }
+
+
+  //=====================================================================
+  //
+  //  Stream-specific methods.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Read characters up to position p, if the stream has them.
+  //  Returns false if the stream ends before p.
+  //-------------------------------------------------------------------
+  public boolean fill(int p)
+    {
+      while (p>=base+len && !eof)
+      {
+        if (len==buf.length)
+        {
+          drop(keep);
+          if (len==buf.length)
+          {
+            char[] b = new char[2*len];
+            System.arraycopy(buf,0,b,0,len);
+            buf = b;
+          }
+        }
+        try
+        {
+          int n = reader.read(buf,len,buf.length-len);
+          if (n<0) eof = true;
+          else len += n;
+        }
+        catch (IOException e)
+        {
+          System.err.println("Error reading stream " + e.getMessage());
+          eof = true;
+        }
+      }
+      return p<base+len;
+    }
+
+  //-------------------------------------------------------------------
+  //  Characters before position p will not be needed any more.
+  //  Returns the amount to be subtracted from all positions
+  //  in the parser, or 0.
+  //-------------------------------------------------------------------
+  public int release(int p)
+    {
+      keep = p;
+      if (p<rebase) return 0;
+      drop(p);
+      base = 0;
+      keep = 0;
+      offset += p;
+      return p;
+    }
+
+  //-------------------------------------------------------------------
+  //  Line and column of position p, numbered starting with 1.
+  //-------------------------------------------------------------------
+  public long line(int p)
+    {
+      long ln = line;
+      for (int i=0;i<p-base;i++)
+        if (buf[i]=='\n') ln++;
+      return ln;
+    }
+
+  public long column(int p)
+    {
+      int i = p-base;
+      while (i>0 && buf[i-1]!='\n') i--;
+      return i==0? column + (p-base) : p-base-i+1;
+    }
+
+  //-------------------------------------------------------------------
+  //  Number of characters before position p in the whole stream.
+  //-------------------------------------------------------------------
+  public long offset(int p)
+    { return offset + p; }
+
+  //-------------------------------------------------------------------
+  //  Drop characters before position p from the buffer.
+  //-------------------------------------------------------------------
+  private void drop(int p)
+    {
+      int d = p-base;
+      if (d<=0) return;
+      for (int i=0;i<d;i++)
+      {
+        if (buf[i]=='\n') { line++; column = 1; }
+        else column++;
+      }
+      System.arraycopy(buf,d,buf,0,len-d);
+      len -= d;
+      base = p;
+    }
+}
@@ -23,6 +23,11 @@
 //    090810 Renamed from 'SourceString' and package name changed.
 //   Version 1.2
 //    091105 Modified where() to insert three dots.
+//   Version 1.7
+//    261017 Implemented 'matches' without copying the text.
+//    261017 Added method 'lines'.
+//    261017 Added method 'set' to use the wrapper again.
+//    261017 Implements SourceLines.
 //
 //=========================================================================
 
@@ -35,7 +40,7 @@ package mouse.runtime;
 //
 //HHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHHH
 
-public class SourceString implements Source
+public class SourceString implements Source, SourceLines
 {
   //=====================================================================
   //
@@ -46,7 +51,12 @@ public class SourceString implements Source
   //  The String.
   //  Note: it is the string given to the constructor, not a copy.
   //-------------------------------------------------------------------
-  final String text;
+  String text;
+
+  //-------------------------------------------------------------------
+  //  Start positions of lines, built when first needed.
+  //-------------------------------------------------------------------
+  private LineIndex lines = null;
 
   //=====================================================================
   //
@@ -56,6 +66,18 @@ public class SourceString implements Source
   public SourceString(final String s)
     { text = s; }
 
+  //-------------------------------------------------------------------
+  //  Wrap the string 's' instead, to parse many short strings without
+  //  constructing a wrapper for each. Phrases from previous parse
+  //  then refer to the new text.
+  //-------------------------------------------------------------------
+  public SourceString set(final String s)
+    {
+      text = s;
+      lines = null;
+      return this;
+    }
+
 
   //=====================================================================
   //
@@ -86,6 +108,12 @@ public class SourceString implements Source
   public String at(int p, int q)
     { return text.substring(p,q); }
 
+  //-------------------------------------------------------------------
+  //  Do characters starting at position p match the string s?
+  //-------------------------------------------------------------------
+  public boolean matches(int p, final String s)
+    { return text.startsWith(s,p); }
+
   //-------------------------------------------------------------------
   //  Describes position p in terms of preceding text.
   //-------------------------------------------------------------------
@@ -98,4 +126,28 @@ public class SourceString implements Source
       else
         return "At start";
     }
+
+
+  //=====================================================================
+  //
+  //  String-specific method.
+  //
+  //=====================================================================
+  //-------------------------------------------------------------------
+  //  Returns line index of the string, for line and column numbers.
+  //-------------------------------------------------------------------
+  public LineIndex lines()
+    {
+      if (lines==null) lines = new LineIndex(text);
+      return lines;
+    }
+
+  //-------------------------------------------------------------------
+  //  Line and column of position p (interface SourceLines).
+  //-------------------------------------------------------------------
+  public long line(int p)
+    { return lines().line(p); }
+
+  public long column(int p)
+    { return lines().column(p); }
 }